@@ -1,7 +1,10 @@
 // Card.java - Modified to use FileUtils
+import java.awt.Dimension;
+import java.awt.MediaTracker;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
 import javax.swing.ImageIcon;
 
 public class Card implements Serializable {
@@ -12,18 +15,29 @@ public class Card implements Serializable {
         IMAGE
     }
 
+    // Stable identity, kept across edits, reordering and saves; 0 only in old serialized cards
+    private long id;
+
     private String question;
     private String textAnswer;
     private String imageAnswerPath; // Store path relative to app data dir
-    private transient ImageIcon imageAnswer;
     private AnswerType answerType;
     private String topic;
 
     // For backward compatibility
     private File imageAnswerFile;
 
+    // Told when the question, text answer or topic changes, so the owning module's indexes stay current
+    interface ChangeListener {
+        // before is a detached copy holding the content the card had until now
+        void cardChanged(Card card, Card before);
+    }
+
+    private transient ChangeListener changeListener;
+
     // Constructor for text answer
     public Card(String question, String textAnswer) {
+        this.id = newId();
         this.question = question;
         this.textAnswer = textAnswer;
         this.answerType = AnswerType.TEXT;
@@ -32,6 +46,7 @@ public class Card implements Serializable {
 
     // Constructor for text answer with topic
     public Card(String question, String textAnswer, String topic) {
+        this.id = newId();
         this.question = question;
         this.textAnswer = textAnswer;
         this.answerType = AnswerType.TEXT;
@@ -40,6 +55,7 @@ public class Card implements Serializable {
 
     // Constructor for image answer
     public Card(String question, File imageFile) {
+        this.id = newId();
         this.question = question;
         setImageFile(imageFile);
         this.answerType = AnswerType.IMAGE;
@@ -48,33 +64,88 @@ public class Card implements Serializable {
 
     // Constructor for image answer with topic
     public Card(String question, File imageFile, String topic) {
+        this.id = newId();
         this.question = question;
         setImageFile(imageFile);
         this.answerType = AnswerType.IMAGE;
         this.topic = topic != null && !topic.isEmpty() ? topic : "General";
     }
 
-    // Set image file - copies it to the app images directory
+    // Rebuild a card from stored field values without copying the image again
+    static Card restore(long id, String question, String textAnswer, String imageAnswerPath,
+                        AnswerType answerType, String topic) {
+        Card card = new Card(question, textAnswer, topic);
+        card.id = id;
+        card.imageAnswerPath = imageAnswerPath;
+        card.answerType = answerType;
+        return card;
+    }
+
+    /**
+     * Makes a new card ID. IDs are random rather than counted, so cards from
+     * different modules or sessions don't collide; they stay above 2^32 so they
+     * never clash with the record-number IDs given to cards in old deck files.
+     */
+    static long newId() {
+        return ThreadLocalRandom.current().nextLong(1L << 32, Long.MAX_VALUE);
+    }
+
+    // Takes over another card's content (e.g. an edited copy) while keeping this card's ID
+    void copyContentFrom(Card other) {
+        Card before = contentBeforeChange();
+        this.question = other.question;
+        this.textAnswer = other.textAnswer;
+        this.imageAnswerPath = other.imageAnswerPath;
+        this.imageAnswerFile = other.imageAnswerFile;
+        this.answerType = other.answerType;
+        this.topic = other.topic != null && !other.topic.isEmpty() ? other.topic : "General";
+        changed(before);
+    }
+
+    ChangeListener getChangeListener() {
+        return changeListener;
+    }
+
+    void setChangeListener(ChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    // Copy of the current content for the listener, or null if nobody is listening
+    private Card contentBeforeChange() {
+        return changeListener != null
+                ? restore(id, question, textAnswer, imageAnswerPath, answerType, topic) : null;
+    }
+
+    private void changed(Card before) {
+        if (before != null) {
+            changeListener.cardChanged(this, before);
+        }
+    }
+
+    // Set image file - adds it to the image store (no copy if the same image is already stored)
     public void setImageFile(File imageFile) {
         if (imageFile != null && imageFile.exists()) {
-            // Copy the image to our app directory
-            File copiedImage = FileUtils.copyImageToAppDir(imageFile);
-            if (copiedImage != null) {
-                // Store the relative path
-                this.imageAnswerPath = FileUtils.getRelativePath(copiedImage);
-                // Load the image
-                loadImage();
+            String storedPath = ImageStore.importImage(imageFile);
+            if (storedPath != null) {
+                // Store the relative path; the image is decoded when first shown
+                this.imageAnswerPath = storedPath;
             }
         }
     }
 
-    private void loadImage() {
-        File imageFile = getImageAnswerFile();
-        if (imageFile != null && imageFile.exists()) {
-            imageAnswer = new ImageIcon(imageFile.getAbsolutePath());
+    // Called when the card is deleted or replaced, so an unused image can be removed
+    public void releaseImage() {
+        if (answerType == AnswerType.IMAGE) {
+            ImageStore.release(imageAnswerPath);
         }
     }
 
+    private static ImageIcon loadImage(File imageFile) {
+        ImageIcon icon = new ImageIcon(imageFile.getAbsolutePath());
+        // A failed or interrupted load leaves a broken icon; keep it out of the caches
+        return icon.getImageLoadStatus() == MediaTracker.COMPLETE ? icon : null;
+    }
+
     // Update the getImageAnswerFile method to be more robust:
     public File getImageAnswerFile() {
         // If we have a path, use it
@@ -94,7 +165,7 @@ public class Card implements Serializable {
         return null;
     }
 
-    // Called after deserialization to reload the image
+    // Called after deserialization to fix up old-format fields
     private void readObject(java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
 
@@ -103,18 +174,23 @@ public class Card implements Serializable {
             topic = "General";
         }
 
+        // Cards serialized before IDs existed
+        if (id == 0) {
+            id = newId();
+        }
+
         // Migrate old format if needed
         migrateFromOldFormat();
 
-        // Load the image
-        if (answerType == AnswerType.IMAGE) {
-            loadImage();
-        }
+        // The image itself is decoded on first use, see getImageAnswer()
     }
 
-    // In Card.java, update the migrateFromOldFormat method:
-
-    public void migrateFromOldFormat() {
+    /**
+     * Moves an old-style imageAnswerFile reference into the app images directory
+     *
+     * @return true if the card was changed and needs to be saved
+     */
+    public boolean migrateFromOldFormat() {
         // If we have an old-style imageAnswerFile but no path
         if (answerType == AnswerType.IMAGE &&
                 imageAnswerFile != null &&
@@ -124,11 +200,12 @@ public class Card implements Serializable {
 
             // First check if the file still exists at the original location
             if (imageAnswerFile.exists()) {
-                // Copy the file to our images directory
-                File copiedImage = FileUtils.copyImageToAppDir(imageAnswerFile);
-                if (copiedImage != null) {
-                    imageAnswerPath = FileUtils.getRelativePath(copiedImage);
+                // Add the file to the image store
+                String storedPath = ImageStore.importImage(imageAnswerFile);
+                if (storedPath != null) {
+                    imageAnswerPath = storedPath;
                     System.out.println("Successfully migrated to: " + imageAnswerPath);
+                    return true;
                 } else {
                     System.out.println("Failed to copy image");
                 }
@@ -138,17 +215,25 @@ public class Card implements Serializable {
 
                 // Use a placeholder or default image
                 imageAnswerPath = "missing_image";
+                return true;
             }
         }
+        return false;
     }
 
     // Getters and setters
+    public long getId() {
+        return id;
+    }
+
     public String getQuestion() {
         return question;
     }
 
     public void setQuestion(String question) {
+        Card before = contentBeforeChange();
         this.question = question;
+        changed(before);
     }
 
     public File getOriginalImageFile() {
@@ -164,12 +249,71 @@ public class Card implements Serializable {
     }
 
     public void setTextAnswer(String textAnswer) {
+        Card before = contentBeforeChange();
         this.textAnswer = textAnswer;
         this.answerType = AnswerType.TEXT;
+        changed(before);
     }
 
+    // Decodes the image when it is needed; decoded images live in the shared ImageCache, not in the card
     public ImageIcon getImageAnswer() {
-        return imageAnswer;
+        if (answerType != AnswerType.IMAGE) {
+            return null;
+        }
+        File imageFile = getImageAnswerFile();
+        if (imageFile == null) {
+            return null;
+        }
+        // Oversized originals are shown through their display-sized copy
+        return ImageCache.get(getImageKey(), () -> loadImage(ImagePyramid.displaySource(imageFile)));
+    }
+
+    // Identifies the image answer in the image caches; null if there is no image
+    public String getImageKey() {
+        if (answerType != AnswerType.IMAGE) {
+            return null;
+        }
+        if (imageAnswerPath != null && !imageAnswerPath.isEmpty()) {
+            return imageAnswerPath;
+        }
+        File imageFile = getImageAnswerFile();
+        return imageFile != null ? imageFile.getAbsolutePath() : null;
+    }
+
+    /**
+     * Returns a version of the image answer suited for drawing at the given width:
+     * the smallest pyramid level that is at least that wide, or the original
+     *
+     * @param targetWidth The width the image will be drawn at
+     * @return The image to scale from, or null if there is none
+     */
+    public ImageIcon getImageAnswer(int targetWidth) {
+        if (answerType != AnswerType.IMAGE) {
+            return null;
+        }
+        File imageFile = getImageAnswerFile();
+        if (imageFile == null) {
+            return null;
+        }
+        File source = ImagePyramid.bestSource(imageFile, targetWidth);
+        if (source.equals(ImagePyramid.displaySource(imageFile))) {
+            return getImageAnswer();
+        }
+        return ImageCache.get(source.getAbsolutePath(), () -> loadImage(source));
+    }
+
+    // Size of the image answer as shown (the display copy for oversized images), read from the file header when possible
+    public Dimension getImageAnswerSize() {
+        File imageFile = answerType == AnswerType.IMAGE ? getImageAnswerFile() : null;
+        if (imageFile == null) {
+            return null;
+        }
+        Dimension size = ImagePyramid.sizeOf(ImagePyramid.displaySource(imageFile));
+        if (size == null) {
+            ImageIcon icon = getImageAnswer();
+            size = icon != null ? new Dimension(icon.getIconWidth(), icon.getIconHeight()) : null;
+        }
+        return size;
     }
 
     public String getTopic() {
@@ -177,7 +321,13 @@ public class Card implements Serializable {
     }
 
     public void setTopic(String topic) {
-        this.topic = topic != null && !topic.isEmpty() ? topic : "General";
+        String newTopic = topic != null && !topic.isEmpty() ? topic : "General";
+        if (newTopic.equals(this.topic)) {
+            return;
+        }
+        Card before = contentBeforeChange();
+        this.topic = newTopic;
+        changed(before);
     }
 
     // Added getter for the relative path
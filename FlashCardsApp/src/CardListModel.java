@@ -0,0 +1,39 @@
+// CardListModel.java
+import javax.swing.AbstractListModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List model over the cards shown in a module view. It only holds the list;
+ * the JList asks for the rows it is about to paint, so a mapped deck decodes
+ * just the cards in view.
+ */
+public class CardListModel extends AbstractListModel<Card> {
+    private List<Card> cards = new ArrayList<>();
+
+    /**
+     * Replaces the shown cards with one change event instead of one per card
+     *
+     * @param cards The cards to show, e.g. a module's cards filtered by topic
+     */
+    public void setCards(List<Card> cards) {
+        int oldSize = this.cards.size();
+        this.cards = cards;
+        if (oldSize > 0) {
+            fireIntervalRemoved(this, 0, oldSize - 1);
+        }
+        if (!cards.isEmpty()) {
+            fireIntervalAdded(this, 0, cards.size() - 1);
+        }
+    }
+
+    @Override
+    public int getSize() {
+        return cards.size();
+    }
+
+    @Override
+    public Card getElementAt(int index) {
+        return cards.get(index);
+    }
+}
@@ -0,0 +1,203 @@
+// CardListRenderer.java
+import javax.swing.*;
+import java.awt.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws one row of the module view's card list: topic, question, answer type,
+ * a thumbnail for image answers, and Edit/Delete buttons. A single set of
+ * components is reused for every row, so a module of any size costs only the
+ * rows in view. The buttons are painted, not live; actionAt() tells the list
+ * which one was clicked.
+ */
+public class CardListRenderer extends JPanel implements ListCellRenderer<Card> {
+    public static final int ROW_HEIGHT = 160;
+
+    // Thumbnails kept for rows scrolled past; 300 of 160x90 is about 17 MB
+    private static final int MAX_THUMBNAILS = 300;
+
+    public enum Action {
+        EDIT,
+        DELETE
+    }
+
+    private static final Color ROW_COLOR = new Color(255, 250, 240); // Floral white
+    private static final Color BORDER_COLOR = new Color(70, 130, 180); // Steel blue
+    private static final Color SELECTED_BORDER_COLOR = new Color(25, 25, 112); // Midnight blue
+
+    private final JPanel cardPanel = new JPanel(new BorderLayout(10, 0));
+    private final JLabel topicLabel = new JLabel();
+    private final JTextArea questionText = new JTextArea();
+    private final JLabel answerTypeLabel = new JLabel();
+    private final JLabel previewLabel = new JLabel();
+    private final JButton editButton = new JButton("Edit");
+    private final JButton deleteButton = new JButton("Delete");
+
+    // By image key; a null value means the thumbnail was requested but hasn't arrived
+    private final LinkedHashMap<String, ImageIcon> thumbnails = new LinkedHashMap<String, ImageIcon>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ImageIcon> eldest) {
+            return size() > MAX_THUMBNAILS;
+        }
+    };
+
+    public CardListRenderer() {
+        setLayout(new BorderLayout());
+        setBackground(new Color(240, 248, 255)); // Alice blue, shows as the gap between rows
+        setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+
+        cardPanel.setBackground(ROW_COLOR);
+
+        // Left side - Question
+        JPanel questionPanel = new JPanel();
+        questionPanel.setLayout(new BoxLayout(questionPanel, BoxLayout.Y_AXIS));
+        questionPanel.setBackground(ROW_COLOR);
+        questionPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 10));
+
+        topicLabel.setFont(new Font("Arial", Font.ITALIC, 12));
+        topicLabel.setForeground(new Color(100, 100, 100));
+
+        JLabel questionLabel = new JLabel("Question:");
+        questionLabel.setFont(new Font("Arial", Font.BOLD, 14));
+
+        questionText.setFont(new Font("Arial", Font.PLAIN, 14));
+        questionText.setLineWrap(true);
+        questionText.setWrapStyleWord(true);
+        questionText.setEditable(false);
+        questionText.setBackground(ROW_COLOR);
+        questionText.setAlignmentX(Component.LEFT_ALIGNMENT);
+
+        questionPanel.add(topicLabel);
+        questionPanel.add(Box.createVerticalStrut(5));
+        questionPanel.add(questionLabel);
+        questionPanel.add(Box.createVerticalStrut(5));
+        questionPanel.add(questionText);
+
+        // Right side - Answer type and preview
+        JPanel answerPanel = new JPanel();
+        answerPanel.setLayout(new BoxLayout(answerPanel, BoxLayout.Y_AXIS));
+        answerPanel.setBackground(ROW_COLOR);
+        answerPanel.setPreferredSize(new Dimension(ThumbnailCache.WIDTH + 20, 0)); // Same width on every row
+
+        answerTypeLabel.setFont(new Font("Arial", Font.BOLD, 14));
+        previewLabel.setFont(new Font("Arial", Font.ITALIC, 14));
+
+        editButton.setBackground(new Color(100, 149, 237)); // Cornflower blue
+        editButton.setForeground(Color.BLACK);
+        editButton.setFocusPainted(false);
+
+        deleteButton.setBackground(new Color(220, 20, 60)); // Crimson
+        deleteButton.setForeground(Color.BLACK);
+        deleteButton.setFocusPainted(false);
+
+        Dimension buttonSize = deleteButton.getPreferredSize();
+        editButton.setPreferredSize(buttonSize);
+        editButton.setMaximumSize(buttonSize);
+
+        // Buttons beside the preview, so a thumbnail fits in the fixed row height
+        JPanel buttonsPanel = new JPanel();
+        buttonsPanel.setLayout(new BoxLayout(buttonsPanel, BoxLayout.Y_AXIS));
+        buttonsPanel.setBackground(ROW_COLOR);
+        buttonsPanel.setBorder(BorderFactory.createEmptyBorder(0, 10, 0, 0));
+        buttonsPanel.add(editButton);
+        buttonsPanel.add(Box.createVerticalStrut(10));
+        buttonsPanel.add(deleteButton);
+
+        answerPanel.add(answerTypeLabel);
+        answerPanel.add(Box.createVerticalStrut(5));
+        answerPanel.add(previewLabel);
+
+        JPanel eastPanel = new JPanel(new BorderLayout());
+        eastPanel.setBackground(ROW_COLOR);
+        eastPanel.add(answerPanel, BorderLayout.CENTER);
+        eastPanel.add(buttonsPanel, BorderLayout.EAST);
+
+        cardPanel.add(questionPanel, BorderLayout.CENTER);
+        cardPanel.add(eastPanel, BorderLayout.EAST);
+        add(cardPanel, BorderLayout.CENTER);
+    }
+
+    @Override
+    public Component getListCellRendererComponent(JList<? extends Card> list, Card card, int index,
+                                                  boolean isSelected, boolean cellHasFocus) {
+        cardPanel.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createLineBorder(isSelected ? SELECTED_BORDER_COLOR : BORDER_COLOR, 2),
+                BorderFactory.createEmptyBorder(10, 15, 10, 15)));
+
+        topicLabel.setText("Topic: " + card.getTopic());
+        questionText.setText(card.getQuestion());
+
+        if (card.getAnswerType() == Card.AnswerType.TEXT) {
+            answerTypeLabel.setText("Answer Type: Text");
+            previewLabel.setIcon(null);
+            previewLabel.setText("Text answer available");
+        } else {
+            answerTypeLabel.setText("Answer Type: Image");
+            ImageIcon thumbnail = thumbnailFor(list, card);
+            previewLabel.setIcon(thumbnail);
+            previewLabel.setText(thumbnail == null ? "Image answer available" : null);
+        }
+        return this;
+    }
+
+    /**
+     * Finds which painted button, if any, is under a point in the list
+     *
+     * @param list The list this renderer draws
+     * @param index The row under the point
+     * @param point The point, in list coordinates
+     * @return The button's action, or null if the point isn't on a button
+     */
+    public Action actionAt(JList<Card> list, int index, Point point) {
+        Rectangle bounds = list.getCellBounds(index, index);
+        if (bounds == null || !bounds.contains(point)) {
+            return null;
+        }
+
+        // Lay the renderer out for that row, the same way it was painted
+        getListCellRendererComponent(list, list.getModel().getElementAt(index), index, false, false);
+        setBounds(bounds);
+        layOut(this);
+
+        Component hit = SwingUtilities.getDeepestComponentAt(this, point.x - bounds.x, point.y - bounds.y);
+        if (hit == editButton) {
+            return Action.EDIT;
+        }
+        if (hit == deleteButton) {
+            return Action.DELETE;
+        }
+        return null;
+    }
+
+    // validate() does nothing for a component that isn't displayed, so lay the tree out by hand
+    private static void layOut(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents()) {
+            if (child instanceof Container) {
+                layOut((Container) child);
+            }
+        }
+    }
+
+    // Returns the thumbnail if it is loaded; otherwise asks for it and repaints the list when it arrives
+    private ImageIcon thumbnailFor(JList<? extends Card> list, Card card) {
+        String key = card.getImageKey();
+        if (key == null) {
+            return null;
+        }
+        if (thumbnails.containsKey(key)) {
+            return thumbnails.get(key);
+        }
+
+        thumbnails.put(key, null);
+        ThumbnailCache.request(card, thumbnail -> {
+            // Skip it if the row was evicted while the thumbnail loaded
+            if (thumbnails.containsKey(key)) {
+                thumbnails.put(key, thumbnail);
+                list.repaint();
+            }
+        });
+        return null;
+    }
+}
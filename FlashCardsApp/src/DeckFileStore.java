@@ -0,0 +1,354 @@
+// DeckFileStore.java
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stores each module as a .deck snapshot plus an append-only .journal of the
+ * edits made since that snapshot, in one directory. The module's search index,
+ * once built, is stored beside each snapshot as a .search file.
+ */
+public class DeckFileStore implements ModuleStore {
+    // Journal size after which it is folded into a fresh snapshot
+    private static final long COMPACTION_THRESHOLD_BYTES = 256 * 1024;
+
+    private final File directory;
+    private final Map<Module, ModuleJournal> journals = new IdentityHashMap<>();
+
+    // All disk writes run here, off the Event Dispatch Thread
+    private final PersistenceQueue persistenceQueue = new PersistenceQueue();
+    private final Set<String> pendingCompactions = ConcurrentHashMap.newKeySet();
+
+    // Snapshots queued per module; a lone index write queued for an older snapshot is skipped
+    private final Map<String, Long> snapshotCounts = new ConcurrentHashMap<>();
+
+    public DeckFileStore(File directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public List<Module> loadModules(List<String> errors) {
+        List<Module> modules = new ArrayList<>();
+        if (!directory.exists()) {
+            return modules;
+        }
+
+        // One-time import of modules still stored with Java serialization
+        File[] legacyFiles = directory.listFiles((dir, name) -> name.endsWith(".ser"));
+        for (Module imported : runInParallel(legacyFiles, DeckFormat::importSerializedModule, errors)) {
+            if (imported == null) {
+                continue; // Its deck already existed and was left alone
+            }
+            // A search index left from an earlier deck of the same name doesn't describe these cards
+            try {
+                Files.deleteIfExists(searchIndexPath(imported.getName()));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(DeckFormat.EXTENSION));
+        List<LoadedModule> loadedModules = runInParallel(files, file -> {
+            DeckFormat.DeckHeader header = DeckFormat.readHeader(file);
+            Path journalPath = journalPath(header.name);
+
+            // Without pending journal records the header is all the main menu needs
+            if (!Files.exists(journalPath)) {
+                Module module = Module.fromCatalog(header, () -> DeckFormat.load(file));
+                module.setSearchIndexLoader(() -> readSearchIndex(header.name, header.journalSequence));
+                return new LoadedModule(module, null);
+            }
+
+            Module module = DeckFormat.load(file);
+
+            // Attached before the replay, so the replayed edits update it too
+            module.setSearchIndex(readSearchIndex(module.getName(), module.getJournalSequence()));
+
+            // Replay edits made since this snapshot was written
+            ModuleJournal journal = new ModuleJournal(journalPath, module.getJournalSequence());
+            int replayed = journal.replay(module);
+            if (replayed > 0) {
+                System.out.println("Replayed " + replayed + " journal records for " + module.getName());
+            }
+            return new LoadedModule(module, journal);
+        }, errors);
+
+        for (LoadedModule loaded : loadedModules) {
+            modules.add(loaded.module);
+            if (loaded.journal == null) {
+                continue;
+            }
+            journals.put(loaded.module, loaded.journal);
+
+            // Also snapshot after old position-based records, so the IDs they produced are stored
+            if (loaded.journal.size() > COMPACTION_THRESHOLD_BYTES || loaded.journal.replayedLegacyRecords()) {
+                saveModule(loaded.module);
+            }
+        }
+        return modules;
+    }
+
+    /**
+     * Queues a write of a module to its .deck file. The module is encoded on the
+     * calling thread so the snapshot is consistent; the disk write happens on the
+     * persistence thread, merged with any other pending save of the same module.
+     * Journal records contained in the snapshot are dropped afterwards.
+     *
+     * @param module The module to save
+     */
+    @Override
+    public void saveModule(Module module) {
+        saveModule(module, getJournal(module));
+    }
+
+    private void saveModule(Module module, ModuleJournal journal) {
+        module.setJournalSequence(journal.getLastSequence());
+
+        final String name = module.getName();
+        final long sequence = module.getJournalSequence();
+        snapshotCounts.merge(name, 1L, Long::sum);
+        final byte[] data;
+        final byte[] searchData;
+        try {
+            data = serialize(module);
+            // Saved with the same sequence, so it is only used together with this snapshot
+            SearchIndex searchIndex = module.getSearchIndexIfAvailable();
+            searchData = searchIndex != null ? serialize(searchIndex, sequence) : null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (searchData != null) {
+            module.searchIndexSaved();
+        }
+
+        persistenceQueue.submitCoalesced(name, () -> {
+            // The old index may carry the same sequence as this snapshot (saves don't always
+            // add journal records), so it goes first; a crash in between only costs a rebuild
+            Files.deleteIfExists(searchIndexPath(name));
+            writeAtomically(name + DeckFormat.EXTENSION, data);
+            journal.discardUpTo(sequence);
+            if (searchData != null) {
+                writeAtomically(name + SearchIndex.EXTENSION, searchData);
+            }
+        });
+    }
+
+    @Override
+    public void flush() {
+        persistenceQueue.flush();
+    }
+
+    @Override
+    public void cardAdded(Module module, Card card) {
+        appendToJournal(module, journal -> journal.encodeCardAdded(card));
+    }
+
+    @Override
+    public void cardUpdated(Module module, Card card) {
+        appendToJournal(module, journal -> journal.encodeCardUpdated(card));
+    }
+
+    @Override
+    public void cardRemoved(Module module, long cardId) {
+        appendToJournal(module, journal -> journal.encodeCardRemoved(cardId));
+    }
+
+    @Override
+    public void topicRenamed(Module module, String oldTopic, String newTopic) {
+        appendToJournal(module, journal -> journal.encodeTopicRenamed(oldTopic, newTopic));
+    }
+
+    /**
+     * Writes just the module's search index when the last snapshot already holds
+     * every change, so the index matches it. With journal records pending the
+     * index only matches a new snapshot, so one is saved instead.
+     *
+     * @param module The module whose index to store
+     */
+    @Override
+    public void saveSearchIndex(Module module) {
+        ModuleJournal journal = getJournal(module);
+        if (journal.getLastSequence() != module.getJournalSequence()) {
+            saveModule(module);
+            return;
+        }
+
+        SearchIndex searchIndex = module.getSearchIndexIfAvailable();
+        if (searchIndex == null) {
+            return;
+        }
+        final String name = module.getName();
+        final byte[] searchData;
+        try {
+            searchData = serialize(searchIndex, module.getJournalSequence());
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        module.searchIndexSaved();
+
+        // A snapshot queued after this point writes its own index, so this one would be out of date
+        final long snapshotCount = snapshotCounts.getOrDefault(name, 0L);
+        persistenceQueue.submit(() -> {
+            if (snapshotCounts.getOrDefault(name, 0L) == snapshotCount) {
+                writeAtomically(name + SearchIndex.EXTENSION, searchData);
+            }
+        });
+    }
+
+    @Override
+    public void forgetModule(Module module) {
+        journals.remove(module);
+    }
+
+    private interface JournalRecord {
+        byte[] encode(ModuleJournal journal) throws IOException;
+    }
+
+    // Queues one change record, falling back to a full snapshot if the journal can't be written
+    private void appendToJournal(Module module, JournalRecord change) {
+        ModuleJournal journal = getJournal(module);
+        final byte[] record;
+        try {
+            record = change.encode(journal);
+        } catch (IOException e) {
+            e.printStackTrace();
+            saveModule(module);
+            return;
+        }
+
+        persistenceQueue.submit(() -> {
+            try {
+                journal.append(record);
+            } catch (IOException e) {
+                e.printStackTrace();
+                // Queued from here rather than via the EDT, so a flush (e.g. at shutdown) still waits for it
+                saveModule(module, journal);
+            }
+        });
+
+        // Fold a long journal into a new snapshot, once per pass
+        final String name = module.getName();
+        if (journal.size() > COMPACTION_THRESHOLD_BYTES && pendingCompactions.add(name)) {
+            saveModule(module);
+            persistenceQueue.submit(() -> pendingCompactions.remove(name));
+        }
+    }
+
+    private ModuleJournal getJournal(Module module) {
+        return journals.computeIfAbsent(module, m -> new ModuleJournal(
+                journalPath(m.getName()), m.getJournalSequence()));
+    }
+
+    private Path journalPath(String moduleName) {
+        return new File(directory, moduleName + ".journal").toPath();
+    }
+
+    private byte[] serialize(Module module) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DeckFormat.write(module, bytes);
+        return bytes.toByteArray();
+    }
+
+    private byte[] serialize(SearchIndex searchIndex, long sequence) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        searchIndex.write(new DataOutputStream(bytes), sequence);
+        return bytes.toByteArray();
+    }
+
+    private Path searchIndexPath(String moduleName) {
+        return new File(directory, moduleName + SearchIndex.EXTENSION).toPath();
+    }
+
+    // Reads a module's stored search index; null if there is none, it belongs to another snapshot or is damaged
+    private SearchIndex readSearchIndex(String name, long sequence) {
+        File file = searchIndexPath(name).toFile();
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            return SearchIndex.read(in, sequence);
+        } catch (IOException e) {
+            // Not fatal: the index is rebuilt from the cards on the next search
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Writes to a temp file and renames it, so a crash never leaves a half-written snapshot
+    private void writeAtomically(String fileName, byte[] data) throws IOException {
+        Path target = new File(directory, fileName).toPath();
+        Files.createDirectories(target.getParent());
+        Path temp = target.resolveSibling(fileName + ".tmp");
+        Files.write(temp, data);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static class LoadedModule {
+        final Module module;
+        final ModuleJournal journal;
+
+        LoadedModule(Module module, ModuleJournal journal) {
+            this.module = module;
+            this.journal = journal;
+        }
+    }
+
+    private interface FileTask<T> {
+        T run(File file) throws Exception;
+    }
+
+    /**
+     * Runs a task for every file on a bounded thread pool. Results come back in
+     * file name order; a failing file is reported in errors and skipped.
+     *
+     * @param files The files to process (may be null)
+     * @param task The work to do for each file
+     * @param errors Receives a message for each file that failed
+     * @return The successful results, in file name order
+     */
+    private <T> List<T> runInParallel(File[] files, FileTask<T> task, List<String> errors) {
+        List<T> results = new ArrayList<>();
+        if (files == null || files.length == 0) {
+            return results;
+        }
+
+        Arrays.sort(files);
+        int threads = Math.min(files.length, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (File file : files) {
+                futures.add(executor.submit(() -> task.run(file)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    errors.add(files[i].getName() + ": " + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return results;
+    }
+}
@@ -0,0 +1,303 @@
+// DeckFormat.java
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary file format for a module (.deck), replacing Java serialization.
+ *
+ * Layout:
+ *   int    magic ("FCDK")
+ *   short  schema version
+ *   string module name
+ *   long   journal sequence
+ *   int    topic count, followed by each topic string (the string table)
+ *   int    card count, followed by each card record
+ *
+ * Card record: [int length][byte answerType][int topicIndex][long id]
+ *              [string question][string textAnswer][string imageAnswerPath]
+ *
+ * Schema 1 records have no id; their cards get the record number + 1 as ID,
+ * which stays the same until the deck is next written (as schema 2).
+ *
+ * Strings are stored as an int byte length (-1 for null) followed by UTF-8 bytes.
+ */
+public class DeckFormat {
+    public static final String EXTENSION = ".deck";
+
+    public static final int MAGIC = 0x4643444B; // "FCDK"
+    public static final short CURRENT_VERSION = 2;
+
+    // First schema that stores card IDs
+    static final short CARD_ID_VERSION = 2;
+
+    // Decks at least this large are memory-mapped and decoded lazily
+    private static final long MAPPED_THRESHOLD_BYTES = Long.getLong("flashcards.mappedDeckThreshold", 4L * 1024 * 1024);
+
+    // Windows won't replace a file while it is mapped, and a mapping lasts until it is garbage collected,
+    // so there large decks are read into memory instead; their cards are still decoded lazily
+    private static final boolean CAN_MAP_DECKS = !System.getProperty("os.name", "").startsWith("Windows");
+
+    /**
+     * Writes a module in the deck format
+     *
+     * @param module The module to write
+     * @param output The stream to write to (not closed)
+     */
+    public static void write(Module module, OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(output, 64 * 1024));
+        List<Card> cards = module.getCards();
+        LazyCardList lazyCards = cards instanceof LazyCardList ? (LazyCardList) cards : null;
+
+        // Intern topics into a string table so each card stores only an index
+        Map<String, Integer> topicIndexes = new HashMap<>();
+        List<String> topics = new ArrayList<>();
+        for (int i = 0; i < cards.size(); i++) {
+            String topic = lazyCards != null ? lazyCards.topicAt(i) : cards.get(i).getTopic();
+            if (!topicIndexes.containsKey(topic)) {
+                topicIndexes.put(topic, topics.size());
+                topics.add(topic);
+            }
+        }
+
+        out.writeInt(MAGIC);
+        out.writeShort(CURRENT_VERSION);
+        writeString(out, module.getName());
+        out.writeLong(module.getJournalSequence());
+
+        out.writeInt(topics.size());
+        for (String topic : topics) {
+            writeString(out, topic);
+        }
+
+        out.writeInt(cards.size());
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+        DataOutputStream record = new DataOutputStream(recordBytes);
+        for (int i = 0; i < cards.size(); i++) {
+            // Copy records of undecoded mapped cards as-is, only patching the topic index
+            ByteBuffer raw = lazyCards != null ? lazyCards.rawRecord(i) : null;
+            if (raw != null) {
+                byte[] bytes = new byte[raw.remaining()];
+                raw.get(bytes);
+                ByteBuffer.wrap(bytes).putInt(1, topicIndexes.get(lazyCards.topicAt(i)));
+                if (lazyCards.hasStoredIds()) {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                } else {
+                    // Schema 1 record: insert the ID after the topic index
+                    out.writeInt(bytes.length + 8);
+                    out.write(bytes, 0, 5);
+                    out.writeLong(lazyCards.idAt(i));
+                    out.write(bytes, 5, bytes.length - 5);
+                }
+                continue;
+            }
+
+            Card card = cards.get(i);
+            recordBytes.reset();
+            record.writeByte(card.getAnswerType().ordinal());
+            record.writeInt(topicIndexes.get(card.getTopic()));
+            record.writeLong(card.getId());
+            writeString(record, card.getQuestion());
+            writeString(record, card.getTextAnswer());
+            writeString(record, card.getImageAnswerPath());
+            record.flush();
+
+            out.writeInt(recordBytes.size());
+            recordBytes.writeTo(out);
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Catalog information stored at the start of every deck file
+     */
+    public static class DeckHeader {
+        public final short version;
+        public final String name;
+        public final long journalSequence;
+        public final String[] topics;
+        public final int cardCount;
+        public final long lastModified;
+
+        DeckHeader(String name, long journalSequence, String[] topics, int cardCount, long lastModified) {
+            this(CURRENT_VERSION, name, journalSequence, topics, cardCount, lastModified);
+        }
+
+        DeckHeader(short version, String name, long journalSequence, String[] topics, int cardCount, long lastModified) {
+            this.version = version;
+            this.name = name;
+            this.journalSequence = journalSequence;
+            this.topics = topics;
+            this.cardCount = cardCount;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * Reads only the header of a deck file, without touching the card records
+     *
+     * @param file The .deck file
+     * @return The deck's name, card count, topics and last-modified time
+     */
+    public static DeckHeader readHeader(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 8 * 1024))) {
+            return readHeader(in, file.lastModified());
+        }
+    }
+
+    private static DeckHeader readHeader(DataInputStream in, long lastModified) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a deck file");
+        }
+        short version = in.readShort();
+        if (version > CURRENT_VERSION) {
+            throw new IOException("Deck was written by a newer version (schema " + version + ")");
+        }
+
+        String name = readString(in);
+        long journalSequence = in.readLong();
+
+        String[] topics = new String[in.readInt()];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = readString(in);
+        }
+
+        return new DeckHeader(version, name, journalSequence, topics, in.readInt(), lastModified);
+    }
+
+    /**
+     * Reads a module written by write()
+     *
+     * @param input The stream to read from (not closed)
+     * @return The loaded module
+     */
+    public static Module read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(input, 64 * 1024));
+        DeckHeader header = readHeader(in, 0);
+
+        Module module = new Module(header.name);
+        module.setJournalSequence(header.journalSequence);
+
+        for (int i = 0; i < header.cardCount; i++) {
+            in.readInt(); // Record length, only needed to skip records
+            Card.AnswerType answerType = Card.AnswerType.values()[in.readByte()];
+            String topic = header.topics[in.readInt()];
+            long id = header.version >= CARD_ID_VERSION ? in.readLong() : i + 1;
+            String question = readString(in);
+            String textAnswer = readString(in);
+            String imageAnswerPath = readString(in);
+            module.addCard(Card.restore(id, question, textAnswer, imageAnswerPath, answerType, topic));
+        }
+
+        return module;
+    }
+
+    /**
+     * Loads a deck file, memory-mapping it when it is large enough that
+     * decoding every card up front would be wasteful
+     *
+     * @param file The .deck file
+     * @return The loaded module
+     */
+    public static Module load(File file) throws IOException {
+        if (file.length() >= MAPPED_THRESHOLD_BYTES && !CAN_MAP_DECKS) {
+            // Later snapshots must be able to replace the file, so don't keep it mapped
+            try {
+                return LazyCardList.open(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt deck file: " + file.getName(), e);
+            }
+        }
+
+        if (file.length() >= MAPPED_THRESHOLD_BYTES) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                try {
+                    return LazyCardList.open(buffer);
+                } catch (RuntimeException e) {
+                    throw new IOException("Corrupt deck file: " + file.getName(), e);
+                }
+            }
+        }
+
+        try (InputStream in = new FileInputStream(file)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Converts a legacy Java-serialized module (.ser) into the deck format.
+     * The original file is kept next to the new one with a .bak suffix. An
+     * existing deck of the same name is never overwritten: it is at least as
+     * new as the .ser, which is then only moved aside.
+     *
+     * @param serFile The legacy module file
+     * @return The imported module, or null if a deck with its name already existed
+     * @throws IOException if the deck can't be written or the .ser can't be moved aside,
+     *                     so it is not imported again on the next start
+     */
+    public static Module importSerializedModule(File serFile) throws IOException, ClassNotFoundException {
+        Module module;
+        try (ObjectInputStream ois = new ObjectInputStream(
+                new BufferedInputStream(new FileInputStream(serFile)))) {
+            module = (Module) ois.readObject();
+        }
+
+        File deckFile = new File(serFile.getParentFile(), module.getName() + EXTENSION);
+        boolean alreadyImported = deckFile.exists();
+        if (!alreadyImported) {
+            // Temp file and rename, so a crash never leaves a half-written deck
+            Path temp = deckFile.toPath().resolveSibling(deckFile.getName() + ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                write(module, out);
+            }
+            Files.move(temp, deckFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        File backup = new File(serFile.getPath() + ".bak");
+        if (!serFile.renameTo(backup)) {
+            throw new IOException("Could not rename imported module file " + serFile.getName()
+                    + "; move it aside so it is not imported again");
+        }
+
+        if (alreadyImported) {
+            System.out.println("Skipped " + serFile.getName() + ": " + deckFile.getName() + " already exists");
+            return null;
+        }
+        System.out.println("Imported " + serFile.getName() + " into " + deckFile.getName());
+        return module;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,189 @@
+// ImageBatchImporter.java
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns a folder or a selection of screenshots into image cards, one card per
+ * file, with the file name as the question. Hashing, copying, pyramid levels and
+ * thumbnails for the files run in parallel on a worker pool; the cards come back
+ * in file name order and are not added to any module, so the caller can save once.
+ */
+public class ImageBatchImporter {
+    private static final String[] IMAGE_EXTENSIONS = {"jpg", "jpeg", "png", "gif", "bmp"};
+
+    // Threads for a batch; the work is a mix of disk and decoding, so one per core
+    private static final int THREADS = Integer.getInteger("flashcards.importThreads",
+            Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Reports how far an import has got
+     */
+    public interface Progress {
+        void imported(int done, int total);
+    }
+
+    /**
+     * Collects the image files from a selection, looking inside selected
+     * folders (not their subfolders), sorted so "slide2" comes before "slide10"
+     *
+     * @param selection Files and folders picked by the user
+     * @return The image files to import
+     */
+    public static List<File> collectImages(File[] selection) {
+        List<File> images = new ArrayList<>();
+        for (File file : selection) {
+            if (file.isDirectory()) {
+                File[] children = file.listFiles();
+                if (children != null) {
+                    for (File child : children) {
+                        if (child.isFile() && isImage(child)) {
+                            images.add(child);
+                        }
+                    }
+                }
+            } else if (file.isFile() && isImage(file)) {
+                images.add(file);
+            }
+        }
+        images.sort(Comparator.comparing(File::getName, ImageBatchImporter::compareNatural));
+        return images;
+    }
+
+    /**
+     * Imports the files in parallel and returns one image card per file that
+     * could be stored, in the same order as the files
+     *
+     * @param files The image files
+     * @param topic The topic for all new cards
+     * @param progress Called from the worker threads after each file
+     * @param cancelled When set, files not started yet are skipped and the cards made so far are released
+     * @return The new cards, or an empty list if cancelled
+     */
+    public static List<Card> importAll(List<File> files, String topic, Progress progress, AtomicBoolean cancelled) {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, THREADS), runnable -> {
+            Thread thread = new Thread(runnable, "image-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // The image store's reference index is written once for the batch, not once per image
+        ImageStore.beginBatch();
+        try {
+            return importWithPool(pool, files, topic, progress, cancelled);
+        } finally {
+            ImageStore.endBatch();
+        }
+    }
+
+    private static List<Card> importWithPool(ExecutorService pool, List<File> files, String topic,
+                                             Progress progress, AtomicBoolean cancelled) {
+        AtomicInteger done = new AtomicInteger();
+        List<Future<Card>> futures = new ArrayList<>();
+        for (File file : files) {
+            futures.add(pool.submit(() -> {
+                if (cancelled.get()) {
+                    return null;
+                }
+                Card card = importOne(file, topic);
+                progress.imported(done.incrementAndGet(), files.size());
+                return card;
+            }));
+        }
+        pool.shutdown();
+
+        List<Card> cards = new ArrayList<>();
+        for (Future<Card> future : futures) {
+            try {
+                Card card = future.get();
+                if (card != null) {
+                    cards.add(card);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled.set(true);
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+
+        if (cancelled.get()) {
+            // Nothing was added to the module, so give back the stored images
+            for (Card card : cards) {
+                card.releaseImage();
+            }
+            return new ArrayList<>();
+        }
+        return cards;
+    }
+
+    private static Card importOne(File file, String topic) {
+        Card card = new Card(questionFor(file), file, topic);
+        File storedImage = card.getImageAnswerFile();
+        if (storedImage == null) {
+            System.out.println("Could not import image: " + file.getName());
+            return null;
+        }
+
+        // Make the list preview now, on this pool, rather than one at a time afterwards
+        ThumbnailCache.ensureThumbnail(storedImage);
+        return card;
+    }
+
+    // "Lecture 3 - slide 12.png" becomes the question "Lecture 3 - slide 12"
+    private static String questionFor(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static boolean isImage(File file) {
+        String name = file.getName().toLowerCase();
+        return Arrays.stream(IMAGE_EXTENSIONS).anyMatch(extension -> name.endsWith("." + extension));
+    }
+
+    // Compares names case-insensitively, with runs of digits compared by value
+    private static int compareNatural(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int startA = i;
+                int startB = j;
+                while (i < a.length() && Character.isDigit(a.charAt(i))) {
+                    i++;
+                }
+                while (j < b.length() && Character.isDigit(b.charAt(j))) {
+                    j++;
+                }
+                String numberA = a.substring(startA, i).replaceFirst("^0+(?=.)", "");
+                String numberB = b.substring(startB, j).replaceFirst("^0+(?=.)", "");
+                if (numberA.length() != numberB.length()) {
+                    return numberA.length() - numberB.length();
+                }
+                int result = numberA.compareTo(numberB);
+                if (result != 0) {
+                    return result;
+                }
+            } else {
+                int result = Character.compare(Character.toLowerCase(ca), Character.toLowerCase(cb));
+                if (result != 0) {
+                    return result;
+                }
+                i++;
+                j++;
+            }
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+}
@@ -0,0 +1,143 @@
+// ImageCache.java
+import javax.swing.ImageIcon;
+import java.lang.ref.SoftReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared cache of decoded images, keyed by the card's image path. Images are
+ * kept up to a byte budget (width x height x 4 bytes each) and evicted in
+ * least-recently-used order. Evicted images can stay reachable through soft
+ * references until the garbage collector needs the memory.
+ *
+ * Settings: -Dflashcards.imageCacheMB (default 256) and
+ *           -Dflashcards.imageCacheSoftRefs (default true)
+ */
+public class ImageCache {
+    private static final long BUDGET_BYTES = Long.getLong("flashcards.imageCacheMB", 256) * 1024 * 1024;
+    private static final boolean SOFT_REFERENCES =
+            Boolean.parseBoolean(System.getProperty("flashcards.imageCacheSoftRefs", "true"));
+
+    public interface Loader {
+        ImageIcon load();
+    }
+
+    // Access-ordered, so iteration starts at the least recently used image
+    private static final LinkedHashMap<String, ImageIcon> images = new LinkedHashMap<>(64, 0.75f, true);
+    private static final Map<String, SoftReference<ImageIcon>> evicted = new HashMap<>();
+    private static long usedBytes;
+
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+
+    /**
+     * Returns the cached image for a path, decoding it with the loader on a miss
+     *
+     * @param path The card's image path
+     * @param loader Decodes the image; may return null if it can't be read
+     * @return The image, or null if it could not be loaded
+     */
+    public static ImageIcon get(String path, Loader loader) {
+        if (path == null) {
+            return null;
+        }
+
+        synchronized (ImageCache.class) {
+            ImageIcon icon = images.get(path);
+            if (icon == null) {
+                icon = reclaim(path);
+            }
+            if (icon != null) {
+                hits++;
+                return icon;
+            }
+            misses++;
+        }
+
+        // Decode outside the lock so other images can be served meanwhile
+        ImageIcon icon = loader.load();
+        if (icon != null) {
+            put(path, icon);
+        }
+        return icon;
+    }
+
+    public static synchronized void put(String path, ImageIcon icon) {
+        ImageIcon previous = images.put(path, icon);
+        if (previous != null) {
+            usedBytes -= sizeOf(previous);
+        }
+        evicted.remove(path);
+        usedBytes += sizeOf(icon);
+        evictToBudget();
+    }
+
+    public static synchronized void invalidate(String path) {
+        ImageIcon removed = images.remove(path);
+        if (removed != null) {
+            usedBytes -= sizeOf(removed);
+        }
+        evicted.remove(path);
+    }
+
+    // Moves a softly held image back into the cache if the GC hasn't cleared it
+    private static ImageIcon reclaim(String path) {
+        SoftReference<ImageIcon> reference = evicted.remove(path);
+        ImageIcon icon = reference != null ? reference.get() : null;
+        if (icon != null) {
+            images.put(path, icon);
+            usedBytes += sizeOf(icon);
+            evictToBudget();
+        }
+        return icon;
+    }
+
+    private static void evictToBudget() {
+        if (usedBytes <= BUDGET_BYTES) {
+            return;
+        }
+
+        Iterator<Map.Entry<String, ImageIcon>> eldest = images.entrySet().iterator();
+        // Always keep the most recent image, even if it alone exceeds the budget
+        while (usedBytes > BUDGET_BYTES && images.size() > 1) {
+            Map.Entry<String, ImageIcon> entry = eldest.next();
+            usedBytes -= sizeOf(entry.getValue());
+            if (SOFT_REFERENCES) {
+                evicted.put(entry.getKey(), new SoftReference<>(entry.getValue()));
+            }
+            eldest.remove();
+            evictions++;
+        }
+
+        // Forget soft references the garbage collector has already cleared
+        evicted.values().removeIf(reference -> reference.get() == null);
+    }
+
+    private static long sizeOf(ImageIcon icon) {
+        return (long) Math.max(icon.getIconWidth(), 0) * Math.max(icon.getIconHeight(), 0) * 4;
+    }
+
+    public static synchronized long getHits() {
+        return hits;
+    }
+
+    public static synchronized long getMisses() {
+        return misses;
+    }
+
+    public static synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public static synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public static synchronized String getStats() {
+        return "Image cache: " + images.size() + " images, " + (usedBytes / (1024 * 1024)) + " MB used, "
+                + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+}
@@ -0,0 +1,136 @@
+// ImagePrefetcher.java
+import javax.swing.SwingUtilities;
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Decodes and scales the image answers of the cards around the current one on
+ * a background thread, filling the ScaledImageCache, so moving to the next or
+ * previous card only has to pick up a finished image.
+ */
+public class ImagePrefetcher {
+    // How many upcoming cards to prepare
+    private static final int CARDS_AHEAD = Integer.getInteger("flashcards.prefetchAhead", 3);
+
+    /**
+     * Decides the size a card's image will be shown at
+     */
+    public interface DisplaySize {
+        Dimension of(Dimension originalSize);
+    }
+
+    private final DisplaySize displaySize;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Card, Future<?>> pending = new IdentityHashMap<>();
+    private Future<?> pendingRender;
+
+    public ImagePrefetcher(DisplaySize displaySize) {
+        this.displaySize = displaySize;
+    }
+
+    /**
+     * Starts preparing the previous card and the next few cards. Work for cards
+     * that are no longer near the current one is cancelled.
+     *
+     * @param cards The study list
+     * @param currentIndex The card being shown
+     */
+    public void prefetch(List<Card> cards, int currentIndex) {
+        List<Card> window = new ArrayList<>();
+        for (int i = currentIndex + 1; i <= currentIndex + CARDS_AHEAD && i < cards.size(); i++) {
+            window.add(cards.get(i));
+        }
+        if (currentIndex > 0) {
+            window.add(cards.get(currentIndex - 1));
+        }
+        window.add(cards.get(currentIndex));
+
+        // Cancel queued work outside the new window
+        pending.entrySet().removeIf(entry -> {
+            if (entry.getValue().isDone()) {
+                return true;
+            }
+            if (!containsCard(window, entry.getKey())) {
+                entry.getValue().cancel(false);
+                return true;
+            }
+            return false;
+        });
+
+        for (Card card : window) {
+            if (card.getAnswerType() == Card.AnswerType.IMAGE
+                    && !pending.containsKey(card)) {
+                pending.put(card, executor.submit(() -> prepare(card)));
+            }
+        }
+    }
+
+    /**
+     * Renders one card's image at a specific size in the background, e.g. the
+     * final quality pass after zooming. Replaces any render still queued.
+     *
+     * @param card The card being shown
+     * @param size The size to render
+     * @param onDone Run on the Event Dispatch Thread once the image is in the cache
+     */
+    public void render(Card card, Dimension size, Runnable onDone) {
+        if (pendingRender != null) {
+            pendingRender.cancel(false);
+        }
+        pendingRender = executor.submit(() -> {
+            ScaledImageCache.get(card, size.width, size.height);
+            SwingUtilities.invokeLater(onDone);
+        });
+    }
+
+    /**
+     * Cancels all queued work, e.g. after a shuffle or a topic change. An image
+     * already being scaled is left to finish; it still ends up in the cache.
+     */
+    public void cancelAll() {
+        for (Future<?> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        if (pendingRender != null) {
+            pendingRender.cancel(false);
+            pendingRender = null;
+        }
+    }
+
+    public void shutdown() {
+        cancelAll();
+        executor.shutdownNow();
+    }
+
+    private void prepare(Card card) {
+        Dimension originalSize = card.getImageAnswerSize();
+        if (originalSize == null) {
+            return;
+        }
+
+        Dimension size = displaySize.of(originalSize);
+        ScaledImageCache.get(card, size.width, size.height);
+    }
+
+    // Cards are compared by identity, the same way the study list holds them
+    private static boolean containsCard(List<Card> cards, Card card) {
+        for (Card c : cards) {
+            if (c == card) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
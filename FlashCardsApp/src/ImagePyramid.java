@@ -0,0 +1,280 @@
+// ImagePyramid.java
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Downscaled copies (1/2, 1/4, 1/8) of stored images, kept next to the original
+ * as name@2.png, name@4.png and name@8.png. Rendering picks the smallest level
+ * that is still at least as large as the target, so a big slide screenshot is
+ * not rescaled from millions of source pixels every time it is shown.
+ *
+ * Images larger than the display limit (-Dflashcards.maxDisplayImageSize,
+ * default 2400 px, 0 to disable) also get a display-sized copy, name@display.png
+ * (name@display.jpg for JPEG originals, so photos don't grow into large PNGs),
+ * read with ImageIO source subsampling so the full image is never decoded. The
+ * app then uses that copy in place of the original; the original stays on disk.
+ * Until the levels exist, the original is used for everything.
+ */
+public class ImagePyramid {
+    private static final int[] FACTORS = {2, 4, 8};
+
+    // Levels narrower than this aren't worth storing
+    private static final int MIN_LEVEL_WIDTH = 200;
+
+    // Longest side above which an imported image gets a display-sized copy
+    private static final int MAX_DISPLAY_SIZE = Integer.getInteger("flashcards.maxDisplayImageSize", 2400);
+
+    // Original image sizes, read from the file header without decoding the pixels
+    private static final Map<String, Dimension> sizes = new ConcurrentHashMap<>();
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "image-levels");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Writes the levels for a newly stored image on a background thread, then
+     * runs the next step there, e.g. making the thumbnail from the new levels
+     *
+     * @param original The stored original image
+     * @param next Run after the levels are written
+     */
+    public static void generateInBackground(File original, Runnable next) {
+        executor.submit(() -> {
+            if (!original.exists()) {
+                return; // Already released again
+            }
+            generate(original);
+            if (!original.exists()) {
+                // Released while the levels were being made; don't leave them behind
+                delete(original);
+                return;
+            }
+            next.run();
+        });
+    }
+
+    /**
+     * Writes the downscaled levels for an image. Each level is made from the one
+     * before it by halving, which keeps text in screenshots sharp.
+     *
+     * @param original The stored original image
+     */
+    public static void generate(File original) {
+        try {
+            BufferedImage level = readDisplayImage(original);
+            if (level == null) {
+                return; // Not a format ImageIO can decode
+            }
+
+            for (int factor : FACTORS) {
+                int width = level.getWidth() / 2;
+                int height = level.getHeight() / 2;
+                if (width < MIN_LEVEL_WIDTH || height < 1) {
+                    break;
+                }
+                level = halve(level, width, height);
+                writeImage(level, "png", levelFile(original, factor));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Returns the file to scale from when drawing the image at the given width:
+     * the smallest stored level that is still at least that wide, or the original.
+     *
+     * @param original The stored original image
+     * @param targetWidth The width the image will be drawn at
+     * @return A level file, or the original
+     */
+    public static File bestSource(File original, int targetWidth) {
+        File displayImage = displaySource(original);
+        Dimension size = sizeOf(displayImage);
+        if (size == null) {
+            return displayImage;
+        }
+
+        for (int i = FACTORS.length - 1; i >= 0; i--) {
+            if (size.width / FACTORS[i] >= targetWidth) {
+                File level = levelFile(original, FACTORS[i]);
+                if (level.exists()) {
+                    return level;
+                }
+            }
+        }
+        return displayImage;
+    }
+
+    /**
+     * Returns the image the app shows in place of the original: its
+     * display-sized copy if the original was oversized, else the original
+     *
+     * @param original The stored original image
+     * @return The display copy or the original
+     */
+    public static File displaySource(File original) {
+        File displayCopy = displayFile(original);
+        return displayCopy.exists() ? displayCopy : original;
+    }
+
+    /**
+     * Reads an image's dimensions from its header, without decoding it
+     *
+     * @param imageFile The image file
+     * @return The size, or null if the file can't be read
+     */
+    public static Dimension sizeOf(File imageFile) {
+        String key = imageFile.getAbsolutePath();
+        Dimension size = sizes.get(key);
+        if (size != null) {
+            return size;
+        }
+
+        try (ImageInputStream in = ImageIO.createImageInputStream(imageFile)) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                size = new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+
+        sizes.put(key, size);
+        return size;
+    }
+
+    public static void delete(File original) {
+        sizes.remove(original.getAbsolutePath());
+        File displayCopy = displayFile(original);
+        sizes.remove(displayCopy.getAbsolutePath());
+        if (displayCopy.exists() && !displayCopy.delete()) {
+            System.out.println("Could not delete display copy: " + displayCopy.getName());
+        }
+        for (int factor : FACTORS) {
+            File level = levelFile(original, factor);
+            if (level.exists() && !level.delete()) {
+                System.out.println("Could not delete image level: " + level.getName());
+            }
+        }
+    }
+
+    static File levelFile(File original, int factor) {
+        return siblingFile(original, String.valueOf(factor));
+    }
+
+    static File displayFile(File original) {
+        return siblingFile(original, "display", displayFormat(original));
+    }
+
+    // Lossy originals keep their format; re-encoding a photo as PNG would make it several times larger
+    private static String displayFormat(File original) {
+        String name = original.getName().toLowerCase();
+        return name.endsWith(".jpg") || name.endsWith(".jpeg") ? "jpg" : "png";
+    }
+
+    private static File siblingFile(File original, String suffix) {
+        return siblingFile(original, suffix, "png");
+    }
+
+    private static File siblingFile(File original, String suffix, String extension) {
+        String name = original.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot >= 0 ? name.substring(0, dot) : name;
+        return new File(original.getParentFile(), baseName + "@" + suffix + "." + extension);
+    }
+
+    /**
+     * Decodes the image the pyramid is built from. An oversized original is read
+     * with source subsampling (to about twice the display size, then smoothed down)
+     * and saved as the display copy; anything else is decoded as is.
+     */
+    private static BufferedImage readDisplayImage(File original) throws IOException {
+        Dimension size = sizeOf(original);
+        int longestSide = size != null ? Math.max(size.width, size.height) : 0;
+        if (MAX_DISPLAY_SIZE <= 0 || longestSide <= MAX_DISPLAY_SIZE) {
+            return ImageIO.read(original);
+        }
+
+        // Point-sampling straight to the target size would alias; stop at about 2x and halve.
+        // Rounded up, so anything over 2x is subsampled; it never drops below the display size.
+        int subsampling = (longestSide + 2 * MAX_DISPLAY_SIZE - 1) / (2 * MAX_DISPLAY_SIZE);
+        BufferedImage image;
+        try (ImageInputStream in = ImageIO.createImageInputStream(original)) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = (double) MAX_DISPLAY_SIZE / Math.max(image.getWidth(), image.getHeight());
+        if (scale < 1.0) {
+            image = halve(image, Math.max(1, (int) (image.getWidth() * scale)),
+                    Math.max(1, (int) (image.getHeight() * scale)));
+        }
+        writeImage(image, displayFormat(original), displayFile(original));
+        return image;
+    }
+
+    // Temp file and rename, so a half-written level or display copy is never picked up
+    private static void writeImage(BufferedImage image, String format, File target) throws IOException {
+        // Unique name, since a batch import and the background thread may write the same file
+        Path temp = Files.createTempFile(target.getParentFile().toPath(), target.getName(), ".tmp");
+        try {
+            if (!ImageIO.write(image, format, temp.toFile())) {
+                throw new IOException("No " + format + " writer for " + target.getName());
+            }
+            Files.move(temp, target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Smooth downscale; used for the factor-2 levels and the final step to display size
+    private static BufferedImage halve(BufferedImage source, int width, int height) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage result = new BufferedImage(width, height, type);
+        Graphics2D g2d = result.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        g2d.drawImage(source, 0, 0, width, height, null);
+        g2d.dispose();
+        return result;
+    }
+}
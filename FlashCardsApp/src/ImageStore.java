@@ -0,0 +1,268 @@
+// ImageStore.java
+import javax.swing.SwingUtilities;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content-addressed storage for card images. Each distinct image is stored once
+ * in the images directory, named after the SHA-256 of its bytes, so the same
+ * screenshot used by many cards takes disk space once. A small index counts how
+ * many cards reference each stored image; the file is deleted when the last
+ * reference is released.
+ */
+public class ImageStore {
+    private static final String INDEX_FILE = "images.index";
+
+    // Stored image name (hash + extension) -> number of cards referencing it
+    private static Properties referenceCounts;
+
+    // Hashes of files outside the store, by path, size and modification time
+    private static final Map<String, String> knownHashes = new ConcurrentHashMap<>();
+
+    // Locks for stored image names; a fixed set shared by hash, so it doesn't grow with the library
+    private static final Object[] locks = new Object[64];
+    static {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    // While a batch is open the counts change only in memory; the index is written when it ends
+    private static int openBatches;
+    private static boolean countsChanged;
+
+    /**
+     * Starts a batch of imports. Until the matching endBatch() the reference
+     * index is not rewritten after every image.
+     */
+    public static synchronized void beginBatch() {
+        openBatches++;
+    }
+
+    /**
+     * Ends a batch started with beginBatch(), writing the reference index
+     * once if the batch changed it
+     */
+    public static synchronized void endBatch() {
+        openBatches--;
+        if (openBatches == 0 && countsChanged) {
+            saveReferenceCounts();
+        }
+    }
+
+    /**
+     * Adds an image to the store, or finds the identical image already stored
+     *
+     * @param imageFile The image chosen by the user
+     * @return Path of the stored image relative to the app data directory, or null if it could not be stored
+     */
+    public static String importImage(File imageFile) {
+        try {
+            // Hashing needs no lock, so several imports can run in parallel
+            String blobName = isStoredImage(imageFile) ? imageFile.getName() : blobNameFor(imageFile);
+            File blob = new File(FileUtils.getImagesDir(), blobName);
+
+            // Only imports (and releases) of the same content wait for each other
+            boolean copied = false;
+            synchronized (lockFor(blobName)) {
+                // Same content already stored: just add a reference, no copy
+                if (!blob.exists()) {
+                    Path temp = new File(FileUtils.getImagesDir(), blobName + ".tmp").toPath();
+                    Files.createDirectories(temp.getParent());
+                    Files.copy(imageFile.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, blob.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    copied = true;
+                }
+
+                synchronized (ImageStore.class) {
+                    Properties counts = getReferenceCounts();
+                    counts.setProperty(blobName, String.valueOf(referenceCount(blobName) + 1));
+                    saveReferenceCounts();
+                }
+            }
+
+            if (copied && SwingUtilities.isEventDispatchThread()) {
+                // Decoding a large image takes a while, so adding a card doesn't wait for the
+                // downscaled copies; the original is drawn until they exist, then the preview is made
+                ImagePyramid.generateInBackground(blob, () -> ThumbnailCache.ensureThumbnail(blob));
+            } else {
+                // Off the EDT (e.g. a batch import's worker pool) the copies are made right here
+                if (copied) {
+                    ImagePyramid.generate(blob);
+                }
+                // Card list preview, made in the background
+                ThumbnailCache.generate(blob);
+            }
+
+            return FileUtils.getRelativePath(blob);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Drops one card's reference to a stored image, deleting the image once
+     * nothing references it. Paths outside the store are ignored.
+     *
+     * @param imageAnswerPath The card's stored image path
+     */
+    public static void release(String imageAnswerPath) {
+        if (imageAnswerPath == null) {
+            return;
+        }
+        File file = FileUtils.resolveRelativePath(imageAnswerPath);
+        if (file == null || !isStoredImage(file)) {
+            return;
+        }
+
+        String blobName = file.getName();
+        synchronized (lockFor(blobName)) {
+            synchronized (ImageStore.class) {
+                releaseReference(file, imageAnswerPath);
+            }
+        }
+    }
+
+    private static void releaseReference(File file, String imageAnswerPath) {
+        String blobName = file.getName();
+        int count = referenceCount(blobName);
+        if (count <= 0) {
+            return; // Not counted (e.g. stored before the index existed), so never delete it
+        }
+
+        Properties counts = getReferenceCounts();
+        if (count == 1) {
+            counts.remove(blobName);
+            ImageCache.invalidate(imageAnswerPath);
+            ImagePyramid.delete(file);
+            ThumbnailCache.delete(blobName.substring(0, 64));
+            if (!file.delete()) {
+                System.out.println("Could not delete unused image: " + blobName);
+            }
+        } else {
+            counts.setProperty(blobName, String.valueOf(count - 1));
+        }
+        saveReferenceCounts();
+    }
+
+    // Only one image lock is ever held at a time, so two names sharing a lock can't deadlock
+    private static Object lockFor(String blobName) {
+        return locks[Math.floorMod(blobName.hashCode(), locks.length)];
+    }
+
+    public static synchronized int referenceCount(String blobName) {
+        return Integer.parseInt(getReferenceCounts().getProperty(blobName, "0"));
+    }
+
+    // True if the file is one of our hash-named images
+    private static boolean isStoredImage(File file) {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent == null || !parent.equals(FileUtils.getImagesDir().getAbsoluteFile())) {
+            return false;
+        }
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String hash = dot >= 0 ? name.substring(0, dot) : name;
+        return hash.length() == 64 && hash.matches("[0-9a-f]+");
+    }
+
+    private static String blobNameFor(File imageFile) throws IOException {
+        StringBuilder name = new StringBuilder(contentHash(imageFile));
+
+        // Keep the extension so the image type stays recognizable
+        String originalName = imageFile.getName();
+        int dot = originalName.lastIndexOf('.');
+        if (dot >= 0) {
+            name.append(originalName.substring(dot).toLowerCase());
+        }
+        return name.toString();
+    }
+
+    /**
+     * Returns the SHA-256 of an image's bytes as hex. For images in the store
+     * this is their file name; other files are hashed once per version.
+     *
+     * @param imageFile Any image file
+     * @return The content hash
+     */
+    public static String contentHash(File imageFile) throws IOException {
+        if (isStoredImage(imageFile)) {
+            String name = imageFile.getName();
+            return name.substring(0, 64);
+        }
+
+        String version = imageFile.getAbsolutePath() + ":" + imageFile.length() + ":" + imageFile.lastModified();
+        String hash = knownHashes.get(version);
+        if (hash == null) {
+            hash = hashFile(imageFile);
+            knownHashes.put(version, hash);
+        }
+        return hash;
+    }
+
+    private static String hashFile(File imageFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (InputStream in = new BufferedInputStream(new FileInputStream(imageFile))) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        StringBuilder hash = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hash.append(String.format("%02x", b));
+        }
+        return hash.toString();
+    }
+
+    private static Properties getReferenceCounts() {
+        if (referenceCounts == null) {
+            referenceCounts = new Properties();
+            File index = new File(FileUtils.getImagesDir(), INDEX_FILE);
+            if (index.exists()) {
+                try (InputStream in = new FileInputStream(index)) {
+                    referenceCounts.load(in);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return referenceCounts;
+    }
+
+    // Called with the class lock held
+    private static void saveReferenceCounts() {
+        if (openBatches > 0) {
+            countsChanged = true;
+            return;
+        }
+        countsChanged = false;
+
+        File index = new File(FileUtils.getImagesDir(), INDEX_FILE);
+        File temp = new File(FileUtils.getImagesDir(), INDEX_FILE + ".tmp");
+        try {
+            try (OutputStream out = new FileOutputStream(temp)) {
+                referenceCounts.store(out, "Card references per stored image");
+            }
+            Files.move(temp.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,407 @@
+// LazyCardList.java
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Card list backed by a memory-mapped deck file. Each element starts out as
+ * the offset of its record in the file and is decoded into a Card only the
+ * first time it is accessed. Cards added or replaced later are kept as
+ * regular objects. Cards can also be found by ID, which is read straight
+ * from the record, so looking one up decodes only that card. Likewise the
+ * topic index is built from the records' topic numbers without decoding.
+ */
+public class LazyCardList extends AbstractList<Card> implements RandomAccess {
+    private final ByteBuffer buffer;
+    private final String[] topics;
+    private final int[] recordOffsets;
+
+    // False for schema 1 decks, whose cards are numbered by record instead
+    private final boolean storedIds;
+
+    // Cards decoded so far, by record number; shared by copies so each record maps to one Card
+    private final Card[] decoded;
+
+    // Either an Integer record number (backed by the file) or a Card added later
+    private final ArrayList<Object> slots;
+
+    // Slot by card ID; built on the first lookup, then kept up to date
+    private HashMap<Long, Object> slotsById;
+
+    // Slots by topic; built on first use, then kept up to date (only for the module's own list)
+    private TopicIndex<Object> topicIndex;
+
+    // The module's own list; copies made for filtering and studying point back to it
+    private final LazyCardList root;
+
+    // Given to every card of the module's own list as it is decoded or added
+    private Card.ChangeListener changeListener;
+
+    public LazyCardList(ByteBuffer buffer, String[] topics, int[] recordOffsets, boolean storedIds) {
+        this.buffer = buffer;
+        this.topics = topics;
+        this.recordOffsets = recordOffsets;
+        this.storedIds = storedIds;
+        this.decoded = new Card[recordOffsets.length];
+        this.slots = new ArrayList<>(recordOffsets.length);
+        for (int i = 0; i < recordOffsets.length; i++) {
+            slots.add(i);
+        }
+        this.root = this;
+    }
+
+    private LazyCardList(LazyCardList source, ArrayList<Object> slots) {
+        this.buffer = source.buffer;
+        this.topics = source.topics;
+        this.recordOffsets = source.recordOffsets;
+        this.storedIds = source.storedIds;
+        this.decoded = source.decoded;
+        this.slots = slots;
+        this.root = source.root;
+    }
+
+    @Override
+    public Card get(int index) {
+        return cardFor(slots.get(index));
+    }
+
+    @Override
+    public Card set(int index, Card card) {
+        Card previous = isDecoded(index) ? get(index) : null;
+        // The index lists members in the order they were added, so rebuild it in list order
+        topicIndex = null;
+        Object replaced = slots.set(index, card);
+        if (slotsById != null) {
+            slotsById.remove(idOf(replaced));
+            slotsById.put(card.getId(), card);
+        }
+        added(card);
+        return previous;
+    }
+
+    @Override
+    public void add(int index, Card card) {
+        if (index != slots.size()) {
+            topicIndex = null; // Not an append; rebuilt in list order on next use
+        }
+        slots.add(index, card);
+        if (slotsById != null) {
+            slotsById.put(card.getId(), card);
+        }
+        added(card);
+        modCount++;
+    }
+
+    @Override
+    public Card remove(int index) {
+        Card removed = isDecoded(index) ? get(index) : null;
+        if (topicIndex != null) {
+            topicIndex.remove(topicOf(slots.get(index)), slots.get(index));
+        }
+        Object slot = slots.remove(index);
+        if (slotsById != null) {
+            slotsById.remove(idOf(slot));
+        }
+        modCount++;
+        return removed;
+    }
+
+    // Cards put into the module's own list report their changes to its listener
+    private void added(Card card) {
+        if (this == root) {
+            card.setChangeListener(changeListener);
+            if (topicIndex != null) {
+                topicIndex.add(card.getTopic(), card);
+            }
+        }
+    }
+
+    private Card cardFor(Object slot) {
+        if (slot instanceof Card) {
+            return (Card) slot;
+        }
+        int record = (Integer) slot;
+        if (decoded[record] == null) {
+            Card card = decode(record);
+            card.setChangeListener(root.changeListener);
+            decoded[record] = card;
+        }
+        return decoded[record];
+    }
+
+    /**
+     * Sets the listener for the cards of this (the module's own) list,
+     * including the ones decoded or added already
+     *
+     * @param listener Told about every change to a card's content
+     */
+    public void setChangeListener(Card.ChangeListener listener) {
+        changeListener = listener;
+        for (Card card : decoded) {
+            if (card != null) {
+                card.setChangeListener(listener);
+            }
+        }
+        for (Object slot : slots) {
+            if (slot instanceof Card) {
+                ((Card) slot).setChangeListener(listener);
+            }
+        }
+    }
+
+    // Moves a card in the topic index; called by the module when a card's topic changes
+    public void topicChanged(Card card, String oldTopic) {
+        if (topicIndex == null) {
+            return;
+        }
+        Object slot = slotsById().get(card.getId());
+        if (slot != null) {
+            topicIndex.move(slot, oldTopic, card.getTopic());
+        }
+    }
+
+    // Sorted topics in use; built from the records' topic numbers the first time
+    public List<String> allTopics() {
+        return topicIndex().topics();
+    }
+
+    private TopicIndex<Object> topicIndex() {
+        if (topicIndex == null) {
+            topicIndex = new TopicIndex<>();
+            for (Object slot : slots) {
+                topicIndex.add(topicOf(slot), slot);
+            }
+        }
+        return topicIndex;
+    }
+
+    private String topicOf(Object slot) {
+        if (slot instanceof Card) {
+            return ((Card) slot).getTopic();
+        }
+        int record = (Integer) slot;
+        if (decoded[record] != null) {
+            return decoded[record].getTopic();
+        }
+        // Record layout: [int length][byte answerType][int topicIndex]...
+        return topics[buffer.getInt(recordOffsets[record] + 5)];
+    }
+
+    /**
+     * Finds a card by ID, decoding only that card
+     *
+     * @param id The card ID
+     * @return The card, or null if it isn't in this list
+     */
+    public Card getById(long id) {
+        Object slot = slotsById().get(id);
+        return slot != null ? cardFor(slot) : null;
+    }
+
+    // Topic of a card by ID, read from the file if the card isn't decoded; null if it isn't in this list
+    public String topicOfId(long id) {
+        Object slot = slotsById().get(id);
+        return slot != null ? topicOf(slot) : null;
+    }
+
+    /**
+     * Removes a card by ID
+     *
+     * @param id The card ID
+     * @return true if the card was in this list
+     */
+    public boolean removeById(long id) {
+        Object slot = slotsById().remove(id);
+        if (slot == null) {
+            return false;
+        }
+        if (topicIndex != null) {
+            topicIndex.remove(topicOf(slot), slot);
+        }
+        // Record numbers and added cards are each unique, so this removes exactly that slot
+        slots.remove(slot);
+        modCount++;
+        return true;
+    }
+
+    // Card ID of the element at an index, read from the file if the card isn't decoded
+    public long idAt(int index) {
+        return idOf(slots.get(index));
+    }
+
+    public boolean hasStoredIds() {
+        return storedIds;
+    }
+
+    private long idOf(Object slot) {
+        if (slot instanceof Card) {
+            return ((Card) slot).getId();
+        }
+        int record = (Integer) slot;
+        if (!storedIds) {
+            return record + 1;
+        }
+        // Record layout: [int length][byte answerType][int topicIndex][long id]...
+        return buffer.getLong(recordOffsets[record] + 9);
+    }
+
+    private HashMap<Long, Object> slotsById() {
+        if (slotsById == null) {
+            slotsById = new HashMap<>(slots.size() * 2);
+            for (Object slot : slots) {
+                slotsById.put(idOf(slot), slot);
+            }
+        }
+        return slotsById;
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * Iterates over the cards without keeping the ones it has to decode,
+     * so reading every card once (e.g. to build the search index) doesn't
+     * leave the whole deck in memory
+     */
+    public Iterable<Card> peekAll() {
+        return () -> new Iterator<Card>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < slots.size();
+            }
+
+            @Override
+            public Card next() {
+                Object slot = slots.get(index++);
+                if (slot instanceof Card) {
+                    return (Card) slot;
+                }
+                int record = (Integer) slot;
+                return decoded[record] != null ? decoded[record] : decode(record);
+            }
+        };
+    }
+
+    public boolean isDecoded(int index) {
+        Object slot = slots.get(index);
+        return slot instanceof Card || decoded[(Integer) slot] != null;
+    }
+
+    /**
+     * Returns a card's topic, reading only the topic index from the file
+     * if the card has not been decoded yet
+     */
+    public String topicAt(int index) {
+        return topicOf(slots.get(index));
+    }
+
+    /**
+     * Returns the raw record (without its length prefix) for a card that has
+     * not been decoded yet, or null if the card lives in memory
+     */
+    public ByteBuffer rawRecord(int index) {
+        if (isDecoded(index)) {
+            return null;
+        }
+        int offset = recordOffsets[(Integer) slots.get(index)];
+        ByteBuffer record = buffer.duplicate();
+        record.position(offset + 4);
+        record.limit(offset + 4 + buffer.getInt(offset));
+        return record.slice();
+    }
+
+    // Copy of this list that shares the mapped file, so undecoded cards stay undecoded
+    public LazyCardList copy() {
+        return new LazyCardList(this, new ArrayList<>(slots));
+    }
+
+    public LazyCardList copyWhereTopic(String topic) {
+        if (this == root) {
+            return new LazyCardList(this, new ArrayList<>(topicIndex().members(topic)));
+        }
+        ArrayList<Object> matching = new ArrayList<>();
+        for (int i = 0; i < slots.size(); i++) {
+            if (topicAt(i).equals(topic)) {
+                matching.add(slots.get(i));
+            }
+        }
+        return new LazyCardList(this, matching);
+    }
+
+    public void shuffle() {
+        Collections.shuffle(slots);
+        topicIndex = null; // Rebuilt in the new order on next use
+        modCount++;
+    }
+
+    private Card decode(int record) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(recordOffsets[record] + 4); // Skip the record length
+
+        Card.AnswerType answerType = Card.AnswerType.values()[in.get()];
+        String topic = topics[in.getInt()];
+        long id = storedIds ? in.getLong() : record + 1;
+        String question = readString(in);
+        String textAnswer = readString(in);
+        String imageAnswerPath = readString(in);
+        return Card.restore(id, question, textAnswer, imageAnswerPath, answerType, topic);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the header of a mapped deck and indexes its card records
+     * without decoding them
+     *
+     * @param buffer The mapped deck file
+     * @return The module with a lazy card list
+     */
+    public static Module open(ByteBuffer buffer) {
+        ByteBuffer in = buffer.duplicate();
+
+        if (in.getInt() != DeckFormat.MAGIC) {
+            throw new IllegalArgumentException("Not a deck file");
+        }
+        short version = in.getShort();
+        if (version > DeckFormat.CURRENT_VERSION) {
+            throw new IllegalArgumentException("Deck was written by a newer version (schema " + version + ")");
+        }
+
+        String name = readString(in);
+        long journalSequence = in.getLong();
+
+        String[] topics = new String[in.getInt()];
+        for (int i = 0; i < topics.length; i++) {
+            topics[i] = readString(in);
+        }
+
+        int[] offsets = new int[in.getInt()];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = in.position();
+            in.position(in.position() + 4 + in.getInt(in.position()));
+        }
+
+        Module module = new Module(name, new LazyCardList(buffer, topics, offsets,
+                version >= DeckFormat.CARD_ID_VERSION));
+        module.setJournalSequence(journalSequence);
+        return module;
+    }
+}
@@ -19,11 +19,22 @@ public class Main {
         FileUtils.getImagesDir();
         FileUtils.createReadmeFile();
 
+        // Load modules before touching the UI, so disk reads don't block the Event Dispatch Thread
+        ModuleManager moduleManager = new ModuleManager();
+
+        // Finish queued saves before the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(moduleManager::flush));
+
         // Start application on the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
-            ModuleManager moduleManager = new ModuleManager();
             MainMenuUI mainMenu = new MainMenuUI(moduleManager);
             mainMenu.setVisible(true);
+
+            if (!moduleManager.getLoadErrors().isEmpty()) {
+                JOptionPane.showMessageDialog(mainMenu,
+                        "Some modules could not be loaded:\n" + String.join("\n", moduleManager.getLoadErrors()),
+                        "Load Errors", JOptionPane.WARNING_MESSAGE);
+            }
         });
     }
 }
\ No newline at end of file
@@ -219,14 +219,31 @@ public class MainMenuUI extends JFrame {
     }
 
     private void openModuleView(Module module) {
+        if (!loadModuleContents(module)) {
+            return;
+        }
         ModuleViewUI moduleView = new ModuleViewUI(module, moduleManager, this);
         moduleView.setVisible(true);
         this.setVisible(false);
     }
 
     private void openStudyView(Module module) {
+        if (!loadModuleContents(module)) {
+            return;
+        }
         StudyUI studyView = new StudyUI(module, this);
         studyView.setVisible(true);
         this.setVisible(false);
     }
+
+    // The main menu is drawn from deck headers; the cards are only read when a module is opened
+    private boolean loadModuleContents(Module module) {
+        if (moduleManager.ensureLoaded(module)) {
+            return true;
+        }
+        JOptionPane.showMessageDialog(this,
+                "The module \"" + module.getName() + "\" could not be loaded.",
+                "Load Error", JOptionPane.ERROR_MESSAGE);
+        return false;
+    }
 }
\ No newline at end of file
@@ -1,53 +1,257 @@
 // Module.java
+import java.io.IOException;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.function.LongPredicate;
 
-public class Module implements Serializable {
+public class Module implements Serializable, Card.ChangeListener {
     private static final long serialVersionUID = 1L;
 
     private String name;
     private List<Card> cards;
 
-    public List<String> getAllTopics() {
-        Set<String> uniqueTopics = new HashSet<>();
-        for (Card card : cards) {
-            // Get the topic and use "General" if it's null
-            String topic = card.getTopic();
-            if (topic == null) {
-                topic = "General";
-                // You might want to update the card to have a topic
-                card.setTopic(topic);
-            }
-            uniqueTopics.add(topic);
-        }
+    // Sequence of the last journal record contained in this snapshot
+    private long journalSequence;
+
+    // Set while only the deck header has been read; the cards load on first use
+    private transient CardLoader cardLoader;
+    private transient DeckFormat.DeckHeader catalogHeader;
+
+    // Card by ID, built on the first lookup; mapped decks keep their own index in LazyCardList
+    private transient Map<Long, Card> cardsById;
+
+    // Cards by topic, with the topics sorted; built on first use, then updated on every change
+    private transient TopicIndex<Card> topicIndex;
+
+    // Set once the cards report their changes to this module
+    private transient boolean watchingCards;
 
-        // Convert to list for sorting
-        List<String> topics = new ArrayList<>(uniqueTopics);
+    // Word index for search; read from the deck store or built on the first search
+    private transient SearchIndex searchIndex;
+    private transient SearchIndexLoader searchIndexLoader;
+    private transient boolean searchIndexUnsaved;
 
-        // Remove null entries before sorting
-        topics.removeIf(t -> t == null);
+    interface CardLoader {
+        Module load() throws IOException;
+    }
+
+    // Reads a stored search index; returns null if there is none for this snapshot
+    interface SearchIndexLoader {
+        SearchIndex load() throws IOException;
+    }
 
-        // Only sort if there are items
-        if (!topics.isEmpty()) {
-            Collections.sort(topics); // Sort alphabetically
+    public List<String> getAllTopics() {
+        if (!isLoaded()) {
+            // The deck header lists exactly the topics in use
+            List<String> topics = new ArrayList<>(Arrays.asList(catalogHeader.topics));
+            Collections.sort(topics);
+            return topics;
         }
 
-        return topics;
+        if (cards instanceof LazyCardList) {
+            // Indexed from the mapped file's topic numbers, without decoding every card
+            watchCards();
+            return ((LazyCardList) cards).allTopics();
+        }
+        return topicIndex().topics();
     }
 
     // Get cards filtered by topic
     public List<Card> getCardsByTopic(String topic) {
+        ensureLoaded();
         if (topic == null || topic.equals("All Topics")) {
-            return new ArrayList<>(cards);
+            return copyCards();
+        }
+
+        if (cards instanceof LazyCardList) {
+            watchCards();
+            return ((LazyCardList) cards).copyWhereTopic(topic);
+        }
+        return new ArrayList<>(topicIndex().members(topic));
+    }
+
+    /**
+     * Moves every card of one topic to another (a rename or a merge),
+     * touching only the cards of that topic
+     *
+     * @param oldTopic The topic to rename
+     * @param newTopic The new topic name
+     */
+    public void renameTopic(String oldTopic, String newTopic) {
+        // A copy, since each setTopic moves the card out of the old topic
+        for (Card card : getCardsByTopic(oldTopic)) {
+            card.setTopic(newTopic);
+        }
+    }
+
+    /**
+     * Finds the cards whose question, text answer or topic contain every word
+     * of the query, each word matching as a prefix ("photo syn" finds
+     * "Photosynthesis"). The first search builds the index unless the deck
+     * store loaded a saved one.
+     *
+     * @param query The search text
+     * @param topic Only cards of this topic; null or "All Topics" for all cards
+     * @param limit The most cards to return, counted after the topic filter
+     * @return The matching cards, in the order they were added
+     */
+    public List<Card> search(String query, String topic, int limit) {
+        SearchIndex index = getSearchIndex();
+        LongPredicate inTopic = null;
+        if (topic != null && !topic.equals("All Topics")) {
+            inTopic = id -> topic.equals(topicOf(id));
+        }
+
+        long[] ids = index.search(query, inTopic, limit);
+        List<Card> results = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Card card = getCardById(id);
+            if (card != null) {
+                results.add(card);
+            }
+        }
+        return results;
+    }
+
+    public List<Card> search(String query, int limit) {
+        return search(query, null, limit);
+    }
+
+    // Topic of a card by ID; mapped cards are not decoded for it
+    private String topicOf(long id) {
+        if (cards instanceof LazyCardList) {
+            return ((LazyCardList) cards).topicOfId(id);
         }
+        Card card = cardsById().get(id);
+        return card != null ? card.getTopic() : null;
+    }
+
+    // The search index, read from the deck store or built from the cards if it isn't loaded yet
+    public synchronized SearchIndex getSearchIndex() {
+        ensureLoaded();
+        if (searchIndex == null) {
+            searchIndex = loadSearchIndex();
+        }
+        if (searchIndex == null) {
+            // Mapped cards are read without being kept, so indexing doesn't load the whole deck
+            Iterable<Card> allCards = cards instanceof LazyCardList ? ((LazyCardList) cards).peekAll() : cards;
+            searchIndex = SearchIndex.build(allCards);
+            searchIndexUnsaved = true;
+        }
+        watchCards();
+        return searchIndex;
+    }
+
+    /**
+     * Returns the search index if it is in memory or stored for this snapshot,
+     * without building it; used by the deck store when saving
+     */
+    synchronized SearchIndex getSearchIndexIfAvailable() {
+        if (searchIndex == null && isLoaded()) {
+            searchIndex = loadSearchIndex();
+            if (searchIndex != null) {
+                watchCards();
+            }
+        }
+        return searchIndex;
+    }
+
+    private SearchIndex loadSearchIndex() {
+        if (searchIndexLoader == null) {
+            return null;
+        }
+        try {
+            return searchIndexLoader.load();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            searchIndexLoader = null;
+        }
+    }
+
+    // Gives the module a stored index to read on first use instead of building one
+    synchronized void setSearchIndexLoader(SearchIndexLoader searchIndexLoader) {
+        this.searchIndexLoader = searchIndexLoader;
+        if (isLoaded()) {
+            watchCards();
+        }
+    }
+
+    // Attaches a stored index that matches the loaded cards, e.g. before replaying the journal
+    synchronized void setSearchIndex(SearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+        this.searchIndexLoader = null;
+        if (searchIndex != null && isLoaded()) {
+            watchCards();
+        }
+    }
+
+    // True if the search index was built here and no snapshot has stored it yet
+    public synchronized boolean isSearchIndexUnsaved() {
+        return searchIndex != null && searchIndexUnsaved;
+    }
 
-        List<Card> filteredCards = new ArrayList<>();
-        for (Card card : cards) {
-            if (card.getTopic().equals(topic)) {
-                filteredCards.add(card);
+    synchronized void searchIndexSaved() {
+        searchIndexUnsaved = false;
+    }
+
+    @Override
+    public void cardChanged(Card card, Card before) {
+        if (!Objects.equals(before.getTopic(), card.getTopic())) {
+            if (cards instanceof LazyCardList) {
+                ((LazyCardList) cards).topicChanged(card, before.getTopic());
+            } else if (topicIndex != null) {
+                topicIndex.move(card, before.getTopic(), card.getTopic());
             }
         }
-        return filteredCards;
+        updateSearchIndex(before, card);
+    }
+
+    // Keeps the search index in step with a change to the cards
+    private void updateSearchIndex(Card removed, Card added) {
+        if (searchIndex == null) {
+            // A stored index no longer matches the cards; the next search builds a new one
+            searchIndexLoader = null;
+            return;
+        }
+        if (removed != null) {
+            searchIndex.remove(removed);
+        }
+        if (added != null) {
+            searchIndex.add(added);
+        }
+    }
+
+    // Has every card report its changes to this module, once an index needs them
+    private void watchCards() {
+        if (watchingCards) {
+            return;
+        }
+        watchingCards = true;
+        if (cards instanceof LazyCardList) {
+            ((LazyCardList) cards).setChangeListener(this);
+        } else {
+            for (Card card : cards) {
+                card.setChangeListener(this);
+            }
+        }
+    }
+
+    private TopicIndex<Card> topicIndex() {
+        if (topicIndex == null) {
+            topicIndex = new TopicIndex<>();
+            for (Card card : cards) {
+                // Cards from old serialized modules may have no topic
+                if (card.getTopic() == null) {
+                    card.setTopic("General");
+                }
+                topicIndex.add(card.getTopic(), card);
+            }
+            watchCards();
+        }
+        return topicIndex;
     }
 
     public Module(String name) {
@@ -55,6 +259,54 @@ public class Module implements Serializable {
         this.cards = new ArrayList<>();
     }
 
+    // Used by deck loaders that supply their own card list, e.g. a memory-mapped one
+    Module(String name, List<Card> cards) {
+        this.name = name;
+        this.cards = cards;
+    }
+
+    // Module known only from its deck header; the cards are read by the loader when first needed
+    static Module fromCatalog(DeckFormat.DeckHeader header, CardLoader cardLoader) {
+        Module module = new Module(header.name, null);
+        module.journalSequence = header.journalSequence;
+        module.catalogHeader = header;
+        module.cardLoader = cardLoader;
+        return module;
+    }
+
+    public synchronized boolean isLoaded() {
+        return cardLoader == null;
+    }
+
+    /**
+     * Reads the full card list if only the catalog header has been loaded so far
+     *
+     * @throws UncheckedIOException if the deck file can't be read
+     */
+    public synchronized void ensureLoaded() {
+        if (cardLoader == null) {
+            return;
+        }
+
+        try {
+            Module loaded = cardLoader.load();
+            cards = loaded.cards;
+            cardsById = null;
+            topicIndex = null;
+            watchingCards = false;
+            journalSequence = loaded.journalSequence;
+            cardLoader = null;
+            catalogHeader = null;
+
+            // Edits must reach a stored search index, or at least mark it as out of date
+            if (searchIndex != null || searchIndexLoader != null) {
+                watchCards();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load module " + name, e);
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -63,25 +315,146 @@ public class Module implements Serializable {
         this.name = name;
     }
 
+    public long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public void setJournalSequence(long journalSequence) {
+        this.journalSequence = journalSequence;
+    }
+
     public List<Card> getCards() {
+        ensureLoaded();
         return cards;
     }
 
     public void addCard(Card card) {
+        ensureLoaded();
         cards.add(card);
+        if (cardsById != null) {
+            cardsById.put(card.getId(), card);
+        }
+        if (watchingCards) {
+            card.setChangeListener(this);
+        }
+        if (topicIndex != null) {
+            topicIndex.add(card.getTopic(), card);
+        }
+        updateSearchIndex(null, card);
     }
 
+    // Positional removal; only used to replay journal records written before cards had IDs
     public void removeCard(int index) {
+        ensureLoaded();
         if (index >= 0 && index < cards.size()) {
+            // Decodes a mapped card first, so its words can be dropped from the search index
+            Card removed = cards.get(index);
             cards.remove(index);
+            forget(removed);
+        }
+    }
+
+    /**
+     * Finds a card by its ID without scanning the card list
+     *
+     * @param id The card ID
+     * @return The card, or null if it is not in this module
+     */
+    public Card getCardById(long id) {
+        ensureLoaded();
+        if (cards instanceof LazyCardList) {
+            return ((LazyCardList) cards).getById(id);
+        }
+        return cardsById().get(id);
+    }
+
+    /**
+     * Replaces a card's content with that of an edited copy. The card keeps its
+     * ID and its place in the list, wherever shuffling or other edits moved it.
+     *
+     * @param id The ID of the card to change
+     * @param updated A card holding the new content
+     * @return false if the card is no longer in this module
+     */
+    public boolean updateCard(long id, Card updated) {
+        Card card = getCardById(id);
+        if (card == null) {
+            return false;
         }
+        card.copyContentFrom(updated);
+        return true;
+    }
+
+    /**
+     * Removes a card by its ID
+     *
+     * @param id The card ID
+     * @return The removed card, or null if it was not in this module
+     */
+    public Card removeCardById(long id) {
+        Card card = getCardById(id);
+        if (card == null) {
+            return null;
+        }
+        if (cards instanceof LazyCardList) {
+            ((LazyCardList) cards).removeById(id);
+        } else {
+            cards.remove(card);
+        }
+        forget(card);
+        return card;
+    }
+
+    // Drops a removed card from the indexes
+    private void forget(Card card) {
+        if (cardsById != null) {
+            cardsById.remove(card.getId());
+        }
+        if (topicIndex != null) {
+            topicIndex.remove(card.getTopic(), card);
+        }
+        card.setChangeListener(null);
+        updateSearchIndex(card, null);
+    }
+
+    private Map<Long, Card> cardsById() {
+        if (cardsById == null) {
+            cardsById = new HashMap<>(cards.size() * 2);
+            for (Card card : cards) {
+                cardsById.put(card.getId(), card);
+            }
+        }
+        return cardsById;
     }
 
     public int getCardCount() {
+        if (!isLoaded()) {
+            return catalogHeader.cardCount;
+        }
         return cards.size();
     }
 
+    // Copy of the card list for a study session; mapped cards stay undecoded
+    public List<Card> copyCards() {
+        ensureLoaded();
+        if (cards instanceof LazyCardList) {
+            return ((LazyCardList) cards).copy();
+        }
+        return new ArrayList<>(cards);
+    }
+
     public void shuffleCards() {
-        Collections.shuffle(cards);
+        ensureLoaded();
+        shuffle(cards);
+        topicIndex = null; // Rebuilt in the new order on next use
+    }
+
+    // Shuffle a card list without decoding cards that are still on disk
+    public static void shuffle(List<Card> cards) {
+        if (cards instanceof LazyCardList) {
+            ((LazyCardList) cards).shuffle();
+        } else {
+            Collections.shuffle(cards);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,331 @@
+// ModuleJournal.java
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only change log that sits next to a module's snapshot file.
+ * Every card edit is written here as one small record instead of rewriting
+ * the whole snapshot. On load the records newer than the snapshot are
+ * replayed on top of it.
+ *
+ * Record layout: [int payloadLength][payload][long crc32(payload)]
+ * Payload layout: [long sequence][byte op][op specific fields]
+ *
+ * Card records name the card by its ID. Records from before card IDs
+ * (ops 1-3, by list position) are still replayed.
+ */
+public class ModuleJournal {
+    // Written before cards had IDs; only replayed
+    private static final byte OP_ADD_CARD = 1;
+    private static final byte OP_UPDATE_CARD = 2;
+    private static final byte OP_REMOVE_CARD = 3;
+
+    private static final byte OP_RENAME_TOPIC = 4;
+    private static final byte OP_ADD_CARD_WITH_ID = 5;
+    private static final byte OP_UPDATE_CARD_BY_ID = 6;
+    private static final byte OP_REMOVE_CARD_BY_ID = 7;
+
+    private final Path path;
+    private long lastSequence;
+
+    // Bytes of all encoded records, including ones still waiting to be appended
+    private long length;
+
+    // Set when replay applied position-based records, whose cards got new IDs
+    private boolean replayedLegacyRecords;
+
+    public ModuleJournal(Path path, long lastSequence) {
+        this.path = path;
+        this.lastSequence = lastSequence;
+        try {
+            this.length = Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            this.length = 0;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long size() {
+        return length;
+    }
+
+    /**
+     * True if the last replay applied records written before cards had IDs.
+     * The module should then be snapshotted, so the IDs its cards got are stored
+     * before any new record refers to them.
+     */
+    public synchronized boolean replayedLegacyRecords() {
+        return replayedLegacyRecords;
+    }
+
+    // The encode methods assign the next sequence number and return the finished
+    // record; append() writes it. This lets the write happen on another thread.
+
+    public synchronized byte[] encodeCardAdded(Card card) throws IOException {
+        return encode(OP_ADD_CARD_WITH_ID, out -> {
+            out.writeLong(card.getId());
+            writeCard(out, card);
+        });
+    }
+
+    public synchronized byte[] encodeCardUpdated(Card card) throws IOException {
+        return encode(OP_UPDATE_CARD_BY_ID, out -> {
+            out.writeLong(card.getId());
+            writeCard(out, card);
+        });
+    }
+
+    public synchronized byte[] encodeCardRemoved(long cardId) throws IOException {
+        return encode(OP_REMOVE_CARD_BY_ID, out -> out.writeLong(cardId));
+    }
+
+    public synchronized byte[] encodeTopicRenamed(String oldTopic, String newTopic) throws IOException {
+        return encode(OP_RENAME_TOPIC, out -> {
+            DeckFormat.writeString(out, oldTopic);
+            DeckFormat.writeString(out, newTopic);
+        });
+    }
+
+    /**
+     * Appends an encoded record to the journal file and forces it to disk
+     *
+     * @param record A record returned by one of the encode methods
+     */
+    public synchronized void append(byte[] record) throws IOException {
+        Files.createDirectories(path.getParent());
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(record));
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Applies every record newer than the module's snapshot sequence.
+     * A torn or corrupt record ends the replay, so a crash mid-append
+     * loses at most that last record.
+     *
+     * @param module The module loaded from the snapshot
+     * @return The number of records applied
+     */
+    public synchronized int replay(Module module) {
+        List<byte[]> payloads = readPayloads();
+        truncateAfterIntactRecords(payloads);
+
+        int applied = 0;
+        for (byte[] payload : payloads) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+                long sequence = in.readLong();
+                lastSequence = Math.max(lastSequence, sequence);
+                if (sequence <= module.getJournalSequence()) {
+                    continue;
+                }
+                apply(module, in.readByte(), in);
+                module.setJournalSequence(sequence);
+                applied++;
+            } catch (IOException e) {
+                e.printStackTrace();
+                break;
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Drops records that are already contained in a snapshot written with
+     * the given sequence, keeping anything appended after it.
+     *
+     * @param snapshotSequence The journal sequence stored in the snapshot
+     */
+    public synchronized void discardUpTo(long snapshotSequence) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+
+        List<byte[]> remaining = new ArrayList<>();
+        for (byte[] payload : readPayloads()) {
+            long sequence = ByteBuffer.wrap(payload).getLong();
+            if (sequence > snapshotSequence) {
+                remaining.add(payload);
+            } else {
+                length -= 4 + payload.length + 8;
+            }
+        }
+
+        if (remaining.isEmpty()) {
+            Files.delete(path);
+            return;
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            for (byte[] payload : remaining) {
+                writeRecord(out, payload);
+            }
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Cuts off a torn tail so new records aren't appended behind unreadable bytes
+    private void truncateAfterIntactRecords(List<byte[]> payloads) {
+        long intactLength = 0;
+        for (byte[] payload : payloads) {
+            intactLength += 4 + payload.length + 8;
+        }
+
+        try {
+            if (Files.exists(path) && Files.size(path) > intactLength) {
+                System.out.println("Truncating damaged tail of " + path);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(intactLength);
+                }
+                length = intactLength;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void apply(Module module, byte op, DataInputStream in) throws IOException {
+        List<Card> cards = module.getCards();
+        switch (op) {
+            case OP_ADD_CARD:
+                module.addCard(readCard(Card.newId(), in));
+                replayedLegacyRecords = true;
+                break;
+            case OP_UPDATE_CARD: {
+                int index = in.readInt();
+                Card card = readCard(0, in);
+                if (index >= 0 && index < cards.size()) {
+                    cards.get(index).copyContentFrom(card);
+                }
+                replayedLegacyRecords = true;
+                break;
+            }
+            case OP_REMOVE_CARD:
+                module.removeCard(in.readInt());
+                replayedLegacyRecords = true;
+                break;
+            case OP_ADD_CARD_WITH_ID: {
+                long id = in.readLong();
+                Card card = readCard(id, in);
+                // A snapshot taken off the EDT may already hold a card whose record comes after it
+                if (!module.updateCard(id, card)) {
+                    module.addCard(card);
+                }
+                break;
+            }
+            case OP_UPDATE_CARD_BY_ID: {
+                long id = in.readLong();
+                module.updateCard(id, readCard(id, in));
+                break;
+            }
+            case OP_REMOVE_CARD_BY_ID:
+                module.removeCardById(in.readLong());
+                break;
+            case OP_RENAME_TOPIC: {
+                String oldTopic = DeckFormat.readString(in);
+                String newTopic = DeckFormat.readString(in);
+                module.renameTopic(oldTopic, newTopic);
+                break;
+            }
+            default:
+                throw new IOException("Unknown journal record type: " + op);
+        }
+    }
+
+    private interface RecordBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private byte[] encode(byte op, RecordBody body) throws IOException {
+        long sequence = lastSequence + 1;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeLong(sequence);
+        payload.writeByte(op);
+        body.write(payload);
+        payload.flush();
+
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        writeRecord(new DataOutputStream(record), bytes.toByteArray());
+
+        lastSequence = sequence;
+        length += record.size();
+        return record.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.writeLong(crc.getValue());
+        out.flush();
+    }
+
+    // Reads all intact records, stopping at the first torn or corrupt one
+    private List<byte[]> readPayloads() {
+        List<byte[]> payloads = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return payloads;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length = in.readInt();
+                if (length <= 0) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                long storedCrc = in.readLong();
+
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (crc.getValue() != storedCrc) {
+                    System.out.println("Ignoring corrupt journal record in " + path);
+                    break;
+                }
+                payloads.add(payload);
+            }
+        } catch (EOFException e) {
+            // End of journal, or a record that was cut off by a crash
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return payloads;
+    }
+
+    private static void writeCard(DataOutputStream out, Card card) throws IOException {
+        out.writeByte(card.getAnswerType().ordinal());
+        DeckFormat.writeString(out, card.getQuestion());
+        DeckFormat.writeString(out, card.getTextAnswer());
+        DeckFormat.writeString(out, card.getImageAnswerPath());
+        DeckFormat.writeString(out, card.getTopic());
+    }
+
+    private static Card readCard(long id, DataInputStream in) throws IOException {
+        Card.AnswerType answerType = Card.AnswerType.values()[in.readByte()];
+        String question = DeckFormat.readString(in);
+        String textAnswer = DeckFormat.readString(in);
+        String imageAnswerPath = DeckFormat.readString(in);
+        String topic = DeckFormat.readString(in);
+        return Card.restore(id, question, textAnswer, imageAnswerPath, answerType, topic);
+    }
+}
@@ -1,15 +1,39 @@
 // ModuleManager.java
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 public class ModuleManager {
     private List<Module> modules;
     private static final String SAVE_DIRECTORY = "flashcards";
 
+    // Where modules are persisted; deck files unless another store is passed in
+    private final ModuleStore store;
+
+    // Modules changed since they were last written to disk
+    private final Set<Module> dirtyModules = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Completed one-time data migrations, one id per line
+    private static final String MIGRATION_LEDGER = "migrations.ledger";
+    private static final String IMAGE_MIGRATION_ID = "structured-image-storage";
+
+    // Files that failed to load at startup, with the reason
+    private final List<String> loadErrors = new ArrayList<>();
+
     public ModuleManager() {
-        modules = new ArrayList<>();
-        loadModules();
+        this(new DeckFileStore(new File(SAVE_DIRECTORY)));
+    }
+
+    public ModuleManager(ModuleStore store) {
+        this.store = store;
+        modules = new ArrayList<>(store.loadModules(loadErrors));
         migrateImagesToStructuredStorage(); // Migrate any old-format modules
     }
 
@@ -17,53 +41,105 @@ public class ModuleManager {
         return modules;
     }
 
+    public List<String> getLoadErrors() {
+        return loadErrors;
+    }
+
     public void addModule(Module module) {
         modules.add(module);
-        saveModules();
+        saveModule(module);
     }
 
     public void removeModule(int index) {
         if (index >= 0 && index < modules.size()) {
-            modules.remove(index);
+            Module removed = modules.remove(index);
+            dirtyModules.remove(removed);
+            store.forgetModule(removed);
             saveModules();
         }
     }
 
-    public void saveModules() {
-        File directory = new File(SAVE_DIRECTORY);
-        if (!directory.exists()) {
-            directory.mkdir();
+    /**
+     * Marks a module as changed so the next saveModules() call writes it
+     *
+     * @param module The module that was modified
+     */
+    public void markDirty(Module module) {
+        if (module != null) {
+            dirtyModules.add(module);
         }
+    }
 
-        for (Module module : modules) {
-            try (ObjectOutputStream oos = new ObjectOutputStream(
-                    new FileOutputStream(SAVE_DIRECTORY + File.separator + module.getName() + ".ser"))) {
-                oos.writeObject(module);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+    public boolean isDirty(Module module) {
+        return dirtyModules.contains(module);
     }
 
-    private void loadModules() {
-        File directory = new File(SAVE_DIRECTORY);
-        if (!directory.exists()) {
-            return;
+    /**
+     * Saves only the modules that were marked dirty since the last save
+     */
+    public void saveModules() {
+        for (Module module : new ArrayList<>(dirtyModules)) {
+            saveModule(module);
         }
+    }
 
-        File[] files = directory.listFiles((dir, name) -> name.endsWith(".ser"));
-        if (files == null) {
-            return;
+    /**
+     * Queues a write of a single module, regardless of its dirty state
+     *
+     * @param module The module to save
+     */
+    public void saveModule(Module module) {
+        dirtyModules.remove(module);
+        store.saveModule(module);
+    }
+
+    /**
+     * Blocks until every queued save and journal write has reached the disk.
+     * Called when an editing window closes and when the application exits.
+     */
+    public void flush() {
+        store.flush();
+    }
+
+    // Keeps a search index built in this session for the next start, where the store supports it
+    public void saveSearchIndex(Module module) {
+        if (isDirty(module)) {
+            // Changes not stored anywhere yet; the index is only valid with a snapshot that has them
+            saveModule(module);
+        } else {
+            store.saveSearchIndex(module);
         }
+    }
 
-        for (File file : files) {
-            try (ObjectInputStream ois = new ObjectInputStream(
-                    new FileInputStream(file))) {
-                Module module = (Module) ois.readObject();
-                modules.add(module);
-            } catch (IOException | ClassNotFoundException e) {
-                e.printStackTrace();
-            }
+    public void recordCardAdded(Module module, Card card) {
+        store.cardAdded(module, card);
+    }
+
+    public void recordCardUpdated(Module module, Card card) {
+        store.cardUpdated(module, card);
+    }
+
+    public void recordCardRemoved(Module module, long cardId) {
+        store.cardRemoved(module, cardId);
+    }
+
+    public void recordTopicRenamed(Module module, String oldTopic, String newTopic) {
+        store.topicRenamed(module, oldTopic, newTopic);
+    }
+
+    /**
+     * Loads a module's cards if only its catalog header has been read
+     *
+     * @param module The module about to be opened
+     * @return false if the deck file could not be read
+     */
+    public boolean ensureLoaded(Module module) {
+        try {
+            module.ensureLoaded();
+            return true;
+        } catch (UncheckedIOException e) {
+            e.printStackTrace();
+            return false;
         }
     }
 
@@ -76,16 +152,26 @@ public class ModuleManager {
         return null;
     }
 
+    /**
+     * Moves legacy image references into the app images directory. The pass runs
+     * once per library; afterwards the ledger entry makes startup skip it entirely.
+     */
     public void migrateImagesToStructuredStorage() {
-        boolean needsSave = false;
+        if (isMigrationDone(IMAGE_MIGRATION_ID)) {
+            return;
+        }
 
         for (Module module : modules) {
+            if (!module.isLoaded()) {
+                continue; // Deck files are always in the new format, no legacy image references
+            }
             for (Card card : module.getCards()) {
                 if (card.getAnswerType() == Card.AnswerType.IMAGE) {
                     // This will trigger the migration logic if needed
                     try {
-                        card.migrateFromOldFormat();
-                        needsSave = true;
+                        if (card.migrateFromOldFormat()) {
+                            markDirty(module);
+                        }
                     } catch (Exception e) {
                         e.printStackTrace();
                     }
@@ -93,15 +179,39 @@ public class ModuleManager {
             }
         }
 
-        if (needsSave) {
-            saveModules(); // Save modules after migration
+        saveModules(); // Save only the modules the migration actually changed
+        recordMigration(IMAGE_MIGRATION_ID);
+    }
+
+    private boolean isMigrationDone(String migrationId) {
+        Path ledger = Paths.get(SAVE_DIRECTORY, MIGRATION_LEDGER);
+        try {
+            return Files.exists(ledger) && Files.readAllLines(ledger).contains(migrationId);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // Written only once the migration's saves are stored
+    private void recordMigration(String migrationId) {
+        store.flush();
+        Path ledger = Paths.get(SAVE_DIRECTORY, MIGRATION_LEDGER);
+        try {
+            Files.createDirectories(ledger.getParent());
+            Files.write(ledger, Collections.singletonList(migrationId),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
     public void removeModuleByName(String name) {
         for (int i = 0; i < modules.size(); i++) {
             if (modules.get(i).getName().equals(name)) {
-                modules.remove(i);
+                Module removed = modules.remove(i);
+                dirtyModules.remove(removed);
+                store.forgetModule(removed);
                 return;
             }
         }
@@ -0,0 +1,55 @@
+// ModuleStore.java
+import java.util.List;
+
+/**
+ * Persistence backend for modules. ModuleManager keeps the modules in memory
+ * and reports every change here; the store decides how it reaches storage.
+ * Writes may be queued, so call flush() before relying on them being stored.
+ */
+public interface ModuleStore {
+
+    /**
+     * Loads every stored module. Modules may be returned catalog-only and
+     * load their cards on first use.
+     *
+     * @param errors Receives a message for each module that could not be loaded
+     * @return The loaded modules, in a stable order
+     */
+    List<Module> loadModules(List<String> errors);
+
+    /**
+     * Stores the complete current state of a module
+     *
+     * @param module The module to save
+     */
+    void saveModule(Module module);
+
+    void cardAdded(Module module, Card card);
+
+    // Cards are identified by Card.getId(), not by their position in the module
+    void cardUpdated(Module module, Card card);
+
+    void cardRemoved(Module module, long cardId);
+
+    void topicRenamed(Module module, String oldTopic, String newTopic);
+
+    /**
+     * Stores a search index the module built since it was loaded, if this
+     * store keeps search indexes; otherwise it is rebuilt when next needed
+     *
+     * @param module The module whose index to store
+     */
+    void saveSearchIndex(Module module);
+
+    /**
+     * Drops any per-module state the store keeps in memory. The stored data is left alone.
+     *
+     * @param module The module that was removed from the manager
+     */
+    void forgetModule(Module module);
+
+    /**
+     * Blocks until every queued write has been stored
+     */
+    void flush();
+}
@@ -1,23 +1,36 @@
 // ModuleViewUI.java
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class ModuleViewUI extends JFrame {
+    // Most search results listed at once; a longer query narrows them down
+    private static final int SEARCH_LIMIT = 1000;
+
     private JComboBox<String> topicFilterComboBox;
     private String currentTopicFilter = "All Topics";
+    private JTextField searchField;
+    private Timer searchTimer;
 
     private Module module;
     private ModuleManager moduleManager;
     private MainMenuUI mainMenuUI;
-    private JPanel cardsPanel;
+    private JList<Card> cardList;
+    private CardListModel cardListModel;
+    private CardListRenderer cardListRenderer;
+    private JLabel emptyLabel;
     private JScrollPane scrollPane;
 
     public ModuleViewUI(Module module, ModuleManager moduleManager, MainMenuUI mainMenuUI) {
@@ -62,14 +75,62 @@ public class ModuleViewUI extends JFrame {
         titlePanel.add(titleLabel, BorderLayout.WEST);
         titlePanel.add(countLabel, BorderLayout.EAST);
 
-        // Cards panel
-        cardsPanel = new JPanel();
-        cardsPanel.setLayout(new BoxLayout(cardsPanel, BoxLayout.Y_AXIS));
-        cardsPanel.setBackground(new Color(240, 248, 255));
-        cardsPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        // Cards list; only the rows in view are rendered, so large modules open as fast as small ones
+        cardListModel = new CardListModel();
+        cardListRenderer = new CardListRenderer();
+        cardList = new JList<>(cardListModel);
+        cardList.setCellRenderer(cardListRenderer);
+        cardList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        cardList.setBackground(new Color(240, 248, 255));
+        cardList.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        // Fixed sizes, so the list never measures every row; the width stretches to the viewport
+        cardList.setFixedCellHeight(CardListRenderer.ROW_HEIGHT);
+        cardList.setFixedCellWidth(400);
+        cardList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = cardList.locationToIndex(e.getPoint());
+                if (index < 0 || !cardList.getCellBounds(index, index).contains(e.getPoint())) {
+                    return;
+                }
+                Card card = cardListModel.getElementAt(index);
+                CardListRenderer.Action action = cardListRenderer.actionAt(cardList, index, e.getPoint());
+                if (action == CardListRenderer.Action.EDIT || (action == null && e.getClickCount() == 2)) {
+                    editCard(card);
+                } else if (action == CardListRenderer.Action.DELETE) {
+                    deleteCard(card);
+                }
+            }
+        });
+        cardList.getInputMap().put(KeyStroke.getKeyStroke("DELETE"), "deleteCard");
+        cardList.getActionMap().put("deleteCard", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Card card = cardList.getSelectedValue();
+                if (card != null) {
+                    deleteCard(card);
+                }
+            }
+        });
+        cardList.getInputMap().put(KeyStroke.getKeyStroke("ENTER"), "editCard");
+        cardList.getActionMap().put("editCard", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Card card = cardList.getSelectedValue();
+                if (card != null) {
+                    editCard(card);
+                }
+            }
+        });
+
+        emptyLabel = new JLabel("No cards found for this topic. Add some cards to get started!", SwingConstants.CENTER);
+        emptyLabel.setFont(new Font("Arial", Font.ITALIC, 16));
+        emptyLabel.setVerticalAlignment(SwingConstants.TOP);
+        emptyLabel.setBorder(BorderFactory.createEmptyBorder(30, 0, 0, 0));
 
-        scrollPane = new JScrollPane(cardsPanel);
+        scrollPane = new JScrollPane(cardList);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
+        scrollPane.getViewport().setBackground(new Color(240, 248, 255));
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
 
         // Button panel
@@ -94,6 +155,15 @@ public class ModuleViewUI extends JFrame {
             }
         });
 
+        JButton importImagesButton = new JButton("Import Images");
+        styleButton(importImagesButton, new Color(60, 179, 113)); // Medium sea green
+        importImagesButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                importImages();
+            }
+        });
+
         JButton backButton = new JButton("Back to Main Menu");
         styleButton(backButton, new Color(128, 128, 128)); // Gray
         backButton.addActionListener(new ActionListener() {
@@ -105,6 +175,7 @@ public class ModuleViewUI extends JFrame {
 
         buttonPanel.add(addTextCardButton);
         buttonPanel.add(addImageCardButton);
+        buttonPanel.add(importImagesButton);
         buttonPanel.add(backButton);
 
         // Add a topic filter panel above the cards list
@@ -139,10 +210,46 @@ public class ModuleViewUI extends JFrame {
             }
         });
 
+        // Search box; the list follows the query shortly after each keystroke
+        JLabel searchLabel = new JLabel("Search:");
+        searchLabel.setFont(new Font("Arial", Font.BOLD, 14));
+
+        searchField = new JTextField(18);
+        searchField.setFont(new Font("Arial", Font.PLAIN, 14));
+
+        // Restarted on every edit, so fast typing runs one search instead of one per key
+        searchTimer = new Timer(150, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                refreshCardsList();
+            }
+        });
+        searchTimer.setRepeats(false);
+
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+
         topicFilterPanel.add(filterLabel);
         topicFilterPanel.add(topicFilterComboBox);
         topicFilterPanel.add(Box.createHorizontalStrut(20));
         topicFilterPanel.add(manageTopicsButton);
+        topicFilterPanel.add(Box.createHorizontalStrut(20));
+        topicFilterPanel.add(searchLabel);
+        topicFilterPanel.add(searchField);
 
         JPanel headerPanel = new JPanel(new BorderLayout());
         headerPanel.add(titlePanel, BorderLayout.NORTH);
@@ -152,7 +259,6 @@ public class ModuleViewUI extends JFrame {
         add(headerPanel, BorderLayout.NORTH);
 
         // Add components to frame
-        add(titlePanel, BorderLayout.NORTH);
         add(scrollPane, BorderLayout.CENTER);
         add(buttonPanel, BorderLayout.SOUTH);
 
@@ -169,30 +275,26 @@ public class ModuleViewUI extends JFrame {
     }
 
     private void refreshCardsList() {
-        cardsPanel.removeAll();
-
-        // Get filtered cards based on selected topic
-        List<Card> filteredCards = module.getCardsByTopic(currentTopicFilter);
-
-        if (filteredCards.isEmpty()) {
-            JLabel emptyLabel = new JLabel("No cards found for this topic. Add some cards to get started!");
-            emptyLabel.setFont(new Font("Arial", Font.ITALIC, 16));
-            emptyLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
-            cardsPanel.add(Box.createVerticalStrut(30));
-            cardsPanel.add(emptyLabel);
+        String query = searchField.getText().trim();
+        List<Card> filteredCards;
+        if (query.isEmpty()) {
+            // Get filtered cards based on selected topic
+            filteredCards = module.getCardsByTopic(currentTopicFilter);
+            emptyLabel.setText("No cards found for this topic. Add some cards to get started!");
         } else {
-            for (int i = 0; i < filteredCards.size(); i++) {
-                Card card = filteredCards.get(i);
-                // Find the actual index in the full list for delete/edit operations
-                int actualIndex = module.getCards().indexOf(card);
-                JPanel cardPanel = createCardPanel(card, actualIndex);
-                cardsPanel.add(cardPanel);
-                cardsPanel.add(Box.createVerticalStrut(10));
-            }
+            // Matches from the search index within the selected topic
+            filteredCards = module.search(query, currentTopicFilter, SEARCH_LIMIT);
+            emptyLabel.setText("No cards match \"" + query + "\".");
         }
 
-        cardsPanel.revalidate();
-        cardsPanel.repaint();
+        // The model just holds the list; rows are rendered as they scroll into view
+        cardList.clearSelection();
+        cardListModel.setCards(filteredCards);
+
+        Component view = filteredCards.isEmpty() ? emptyLabel : cardList;
+        if (scrollPane.getViewport().getView() != view) {
+            scrollPane.setViewportView(view);
+        }
     }
 
     // Add topic management dialog
@@ -263,18 +365,14 @@ public class ModuleViewUI extends JFrame {
 
                     if (newTopic != null && !newTopic.trim().isEmpty() && !newTopic.equals(oldTopic)) {
                         // Update all cards with this topic
-                        for (Card card : module.getCards()) {
-                            if (card.getTopic().equals(oldTopic)) {
-                                card.setTopic(newTopic);
-                            }
-                        }
+                        module.renameTopic(oldTopic, newTopic);
 
                         // Update list model
                         listModel.removeElementAt(selectedIndex);
                         listModel.addElement(newTopic);
 
-                        // Save changes
-                        moduleManager.saveModules();
+                        // Record the rename in the module journal
+                        moduleManager.recordTopicRenamed(module, oldTopic, newTopic);
 
                         // Update filter dropdown
                         updateTopicFilter();
@@ -319,17 +417,13 @@ public class ModuleViewUI extends JFrame {
 
                     if (targetTopic != null) {
                         // Update all cards with the selected topic
-                        for (Card card : module.getCards()) {
-                            if (card.getTopic().equals(selectedTopic)) {
-                                card.setTopic(targetTopic);
-                            }
-                        }
+                        module.renameTopic(selectedTopic, targetTopic);
 
                         // Remove the merged topic
                         listModel.removeElement(selectedTopic);
 
-                        // Save changes
-                        moduleManager.saveModules();
+                        // Record the merge in the module journal
+                        moduleManager.recordTopicRenamed(module, selectedTopic, targetTopic);
 
                         // Update filter dropdown
                         updateTopicFilter();
@@ -395,126 +489,43 @@ public class ModuleViewUI extends JFrame {
     }
 
 
-    private JPanel createCardPanel(Card card, final int index) {
-        JPanel panel = new JPanel(new BorderLayout(10, 0));
-        panel.setBackground(new Color(255, 250, 240)); // Floral white
-        panel.setBorder(BorderFactory.createCompoundBorder(
-                BorderFactory.createLineBorder(new Color(70, 130, 180), 2),
-                BorderFactory.createEmptyBorder(15, 15, 15, 15)));
-        panel.setMaximumSize(new Dimension(Integer.MAX_VALUE, 150));
-
-        // Left side - Question
-        JPanel questionPanel = new JPanel();
-        questionPanel.setLayout(new BoxLayout(questionPanel, BoxLayout.Y_AXIS));
-        questionPanel.setBackground(new Color(255, 250, 240));
-        questionPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 0, 10));
-        questionPanel.setPreferredSize(new Dimension(400, 120));
-
-        // Add topic label
-        JLabel topicLabel = new JLabel("Topic: " + card.getTopic());
-        topicLabel.setFont(new Font("Arial", Font.ITALIC, 12));
-        topicLabel.setForeground(new Color(100, 100, 100));
-
-        JLabel questionLabel = new JLabel("Question:");
-        questionLabel.setFont(new Font("Arial", Font.BOLD, 14));
-
-        JTextArea questionText = new JTextArea(card.getQuestion());
-        questionText.setFont(new Font("Arial", Font.PLAIN, 14));
-        questionText.setLineWrap(true);
-        questionText.setWrapStyleWord(true);
-        questionText.setEditable(false);
-        questionText.setBackground(new Color(255, 250, 240));
-
-        questionPanel.add(topicLabel);
-        questionPanel.add(Box.createVerticalStrut(5));
-        questionPanel.add(questionLabel);
-        questionPanel.add(Box.createVerticalStrut(5));
-        questionPanel.add(new JScrollPane(questionText));
-
-
-        // Right side - Answer Type
-        JPanel answerPanel = new JPanel();
-        answerPanel.setLayout(new BoxLayout(answerPanel, BoxLayout.Y_AXIS));
-        answerPanel.setBackground(new Color(255, 250, 240));
-
-        JLabel answerTypeLabel = new JLabel("Answer Type: " +
-                (card.getAnswerType() == Card.AnswerType.TEXT ? "Text" : "Image"));
-        answerTypeLabel.setFont(new Font("Arial", Font.BOLD, 14));
-
-        answerPanel.add(answerTypeLabel);
-        answerPanel.add(Box.createVerticalStrut(10));
-
-        if (card.getAnswerType() == Card.AnswerType.TEXT) {
-            JLabel textPreview = new JLabel("Text answer available");
-            textPreview.setFont(new Font("Arial", Font.ITALIC, 14));
-            answerPanel.add(textPreview);
-        } else {
-            JLabel imagePreview = new JLabel("Image answer available");
-            imagePreview.setFont(new Font("Arial", Font.ITALIC, 14));
-            answerPanel.add(imagePreview);
-        }
-
-        // Buttons panel
-        JPanel buttonsPanel = new JPanel();
-        buttonsPanel.setLayout(new BoxLayout(buttonsPanel, BoxLayout.Y_AXIS));
-        buttonsPanel.setBackground(new Color(255, 250, 240));
-
-        // Edit button
-        JButton editButton = new JButton("Edit");
-        editButton.setBackground(new Color(100, 149, 237)); // Cornflower blue
-        editButton.setForeground(Color.BLACK);
-        editButton.setFocusPainted(false);
-        editButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                editCard(card, index);
+    private void deleteCard(Card card) {
+        int result = JOptionPane.showConfirmDialog(ModuleViewUI.this,
+                "Are you sure you want to delete this card?",
+                "Confirm Deletion", JOptionPane.YES_NO_OPTION);
+        if (result == JOptionPane.YES_OPTION) {
+            Card removed = module.removeCardById(card.getId());
+            if (removed != null) {
+                removed.releaseImage();
+                moduleManager.recordCardRemoved(module, removed.getId());
             }
-        });
-
-        // Delete button
-        JButton deleteButton = new JButton("Delete");
-        deleteButton.setBackground(new Color(220, 20, 60)); // Crimson
-        deleteButton.setForeground(Color.BLACK);
-        deleteButton.setFocusPainted(false);
-        deleteButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                int result = JOptionPane.showConfirmDialog(ModuleViewUI.this,
-                        "Are you sure you want to delete this card?",
-                        "Confirm Deletion", JOptionPane.YES_NO_OPTION);
-                if (result == JOptionPane.YES_OPTION) {
-                    module.removeCard(index);
-                    moduleManager.saveModules();
-                    refreshCardsList();
-                }
-            }
-        });
-
-        // Add spacing between buttons
-        buttonsPanel.add(editButton);
-        buttonsPanel.add(Box.createVerticalStrut(10));
-        buttonsPanel.add(deleteButton);
-
-        answerPanel.add(Box.createVerticalGlue());
-        answerPanel.add(buttonsPanel);
-
-        panel.add(questionPanel, BorderLayout.CENTER);
-        panel.add(answerPanel, BorderLayout.EAST);
-
-        return panel;
+            refreshCardsList();
+        }
     }
 
     // Add the editCard method to handle editing of cards
-    private void editCard(Card card, int index) {
+    private void editCard(Card card) {
         if (card.getAnswerType() == Card.AnswerType.TEXT) {
-            editTextCard(card, index);
+            editTextCard(card);
         } else {
-            editImageCard(card, index);
+            editImageCard(card);
+        }
+    }
+
+    // Puts an edited copy's content into the card, found by ID wherever it is in the module now
+    private void applyCardEdit(Card card, Card updatedCard) {
+        Card current = module.getCardById(card.getId());
+        if (current == null) {
+            updatedCard.releaseImage(); // The card was deleted meanwhile
+            return;
         }
+        current.releaseImage();
+        module.updateCard(current.getId(), updatedCard);
+        moduleManager.recordCardUpdated(module, current);
     }
 
     // Method to edit text cards
-    private void editTextCard(Card card, int index) {
+    private void editTextCard(Card card) {
         // Create a custom dialog for editing a text card
         JDialog dialog = new JDialog(this, "Edit Text Card", true);
         dialog.setSize(500, 400);
@@ -609,9 +620,8 @@ public class ModuleViewUI extends JFrame {
                 // Create a new card with updated information
                 Card updatedCard = new Card(question, answer, topic);
 
-                // Replace the old card with the updated one
-                module.getCards().set(index, updatedCard);
-                moduleManager.saveModules();
+                // Update the card in place; it keeps its ID
+                applyCardEdit(card, updatedCard);
                 updateTopicFilter();
                 refreshCardsList();
                 dialog.dispose();
@@ -627,7 +637,7 @@ public class ModuleViewUI extends JFrame {
     }
 
     // Method to edit image cards
-    private void editImageCard(Card card, int index) {
+    private void editImageCard(Card card) {
         // Create a custom dialog for editing an image card question
         JDialog dialog = new JDialog(this, "Edit Image Card", true);
         dialog.setSize(500, 300);
@@ -752,9 +762,8 @@ public class ModuleViewUI extends JFrame {
                 // Create a new card with updated information
                 Card updatedCard = new Card(question, selectedFile[0], topic);
 
-                // Replace the old card with the updated one
-                module.getCards().set(index, updatedCard);
-                moduleManager.saveModules();
+                // Update the card in place; it keeps its ID
+                applyCardEdit(card, updatedCard);
                 updateTopicFilter(); // Update topic filter in case a new topic was added
                 refreshCardsList();
                 dialog.dispose();
@@ -862,7 +871,7 @@ public class ModuleViewUI extends JFrame {
 
                 Card newCard = new Card(question, answer, topic);
                 module.addCard(newCard);
-                moduleManager.saveModules();
+                moduleManager.recordCardAdded(module, newCard);
                 updateTopicFilter(); // Update topic filter in case a new topic was added
                 refreshCardsList();
                 dialog.dispose();
@@ -977,13 +986,147 @@ public class ModuleViewUI extends JFrame {
             File selectedFile = fileChooser.getSelectedFile();
             Card newCard = new Card(question, selectedFile, topic);
             module.addCard(newCard);
-            moduleManager.saveModules();
+            moduleManager.recordCardAdded(module, newCard);
             updateTopicFilter(); // Update topic filter in case a new topic was added
             refreshCardsList();
         }
     }
 
+    // Creates one image card per selected file (or per image in a selected folder)
+    private void importImages() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Select Images or a Folder to Import");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+        fileChooser.setMultiSelectionEnabled(true);
+        fileChooser.setFileFilter(new FileNameExtensionFilter("Image files", "jpg", "jpeg", "png", "gif", "bmp"));
+
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        List<File> files = ImageBatchImporter.collectImages(fileChooser.getSelectedFiles());
+        if (files.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "No image files were found in the selection.",
+                    "Import Images", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        // One topic for the whole batch
+        List<String> topics = module.getAllTopics();
+        if (topics.isEmpty()) {
+            topics.add("General");
+        }
+        JComboBox<String> topicComboBox = new JComboBox<>(topics.toArray(new String[0]));
+        topicComboBox.setEditable(true); // Allow adding new topics
+        topicComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
+
+        int choice = JOptionPane.showConfirmDialog(this,
+                new Object[]{"Import " + files.size() + " images as cards. Topic:", topicComboBox},
+                "Import Images", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (choice != JOptionPane.OK_OPTION) {
+            return;
+        }
+        String selectedTopic = topicComboBox.getSelectedItem() != null
+                ? topicComboBox.getSelectedItem().toString().trim() : "";
+        String topic = selectedTopic.isEmpty() ? "General" : selectedTopic;
+
+        // Progress dialog; not modal, so the import worker can update it
+        JDialog progressDialog = new JDialog(this, "Importing Images", false);
+        progressDialog.setSize(400, 140);
+        progressDialog.setLocationRelativeTo(this);
+        progressDialog.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        progressDialog.setLayout(new BorderLayout(10, 10));
+        progressDialog.getContentPane().setBackground(new Color(240, 248, 255));
+
+        JProgressBar progressBar = new JProgressBar(0, files.size());
+        progressBar.setStringPainted(true);
+        progressBar.setString("0 / " + files.size());
+
+        JPanel progressPanel = new JPanel(new BorderLayout());
+        progressPanel.setBackground(new Color(240, 248, 255));
+        progressPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 0, 20));
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        JButton cancelButton = new JButton("Cancel");
+        cancelButton.setBackground(new Color(128, 128, 128));
+        cancelButton.setForeground(Color.BLACK);
+        cancelButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                cancelled.set(true);
+                cancelButton.setEnabled(false);
+                progressBar.setString("Cancelling...");
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.setBackground(new Color(240, 248, 255));
+        buttonPanel.add(cancelButton);
+
+        progressDialog.add(progressPanel, BorderLayout.CENTER);
+        progressDialog.add(buttonPanel, BorderLayout.SOUTH);
+
+        SwingWorker<List<Card>, Integer> worker = new SwingWorker<List<Card>, Integer>() {
+            @Override
+            protected List<Card> doInBackground() {
+                return ImageBatchImporter.importAll(files, topic, (done, total) -> publish(done), cancelled);
+            }
+
+            @Override
+            protected void process(List<Integer> chunks) {
+                if (!cancelled.get()) {
+                    int done = chunks.get(chunks.size() - 1);
+                    progressBar.setValue(done);
+                    progressBar.setString(done + " / " + files.size());
+                }
+            }
+
+            @Override
+            protected void done() {
+                progressDialog.dispose();
+                List<Card> cards;
+                try {
+                    cards = get();
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    return;
+                }
+                if (cards.isEmpty()) {
+                    return;
+                }
+
+                // Add the whole batch, then write the module once instead of journaling every card
+                for (Card card : cards) {
+                    module.addCard(card);
+                }
+                moduleManager.saveModule(module);
+                updateTopicFilter(); // Update topic filter in case a new topic was added
+                refreshCardsList();
+
+                if (cards.size() < files.size()) {
+                    JOptionPane.showMessageDialog(ModuleViewUI.this,
+                            "Imported " + cards.size() + " of " + files.size() + " images. "
+                                    + "The rest could not be read.",
+                            "Import Images", JOptionPane.WARNING_MESSAGE);
+                }
+            }
+        };
+        worker.execute();
+        progressDialog.setVisible(true);
+    }
+
     private void returnToMainMenu() {
+        searchTimer.stop();
+
+        // Keep a search index built while browsing, so the next start doesn't rebuild it
+        if (module.isSearchIndexUnsaved()) {
+            moduleManager.saveSearchIndex(module);
+        }
+
+        // Make sure this module's edits are on disk before leaving it
+        moduleManager.flush();
         mainMenuUI.setVisible(true);
         dispose();
     }
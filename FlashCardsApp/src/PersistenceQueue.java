@@ -0,0 +1,117 @@
+// PersistenceQueue.java
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Runs disk writes on a single background thread, in submission order, so the
+ * Event Dispatch Thread never waits on I/O. Snapshot writes for the same module
+ * that pile up before the worker reaches them are merged into one write.
+ */
+public class PersistenceQueue {
+
+    public interface Write {
+        void run() throws IOException;
+    }
+
+    private static class Task {
+        Write write;
+        final String coalesceKey;
+
+        Task(Write write, String coalesceKey) {
+            this.write = write;
+            this.coalesceKey = coalesceKey;
+        }
+    }
+
+    private final ArrayDeque<Task> tasks = new ArrayDeque<>();
+    private final Map<String, Task> pendingByKey = new HashMap<>();
+    private long submitted;
+    private long completed;
+
+    public PersistenceQueue() {
+        Thread worker = new Thread(this::runWorker, "module-persistence");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues a write that must run exactly once, after everything queued before it
+     *
+     * @param write The write to perform
+     */
+    public synchronized void submit(Write write) {
+        tasks.add(new Task(write, null));
+        submitted++;
+        notifyAll();
+    }
+
+    /**
+     * Queues a write that replaces any not-yet-started write with the same key.
+     * The merged write keeps the queue position of the earlier one.
+     *
+     * @param key Identifies what is being written, e.g. the module name
+     * @param write The write to perform
+     */
+    public synchronized void submitCoalesced(String key, Write write) {
+        Task pending = pendingByKey.get(key);
+        if (pending != null) {
+            pending.write = write;
+            return;
+        }
+
+        Task task = new Task(write, key);
+        pendingByKey.put(key, task);
+        tasks.add(task);
+        submitted++;
+        notifyAll();
+    }
+
+    /**
+     * Blocks until the queue is empty: every write submitted before this call
+     * has finished, and so has any write those writes queued in turn
+     * (e.g. a snapshot replacing a journal record that couldn't be written)
+     */
+    public synchronized void flush() {
+        while (completed < submitted) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Write write;
+            synchronized (this) {
+                while (tasks.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                Task task = tasks.poll();
+                if (task.coalesceKey != null) {
+                    pendingByKey.remove(task.coalesceKey);
+                }
+                write = task.write;
+            }
+
+            try {
+                write.run();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+
+            synchronized (this) {
+                completed++;
+                notifyAll();
+            }
+        }
+    }
+}
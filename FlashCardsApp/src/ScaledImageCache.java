@@ -0,0 +1,93 @@
+// ScaledImageCache.java
+import javax.swing.ImageIcon;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Cache of image answers already scaled to a display size, keyed by image and
+ * size. Zooming back to an earlier level or returning to a previous card reuses
+ * the scaled image instead of rendering it again. Least recently used entries
+ * are dropped once the byte budget (-Dflashcards.scaledImageCacheMB, default 128)
+ * is exceeded.
+ */
+public class ScaledImageCache {
+    private static final long BUDGET_BYTES = Long.getLong("flashcards.scaledImageCacheMB", 128) * 1024 * 1024;
+
+    // Access-ordered, so iteration starts at the least recently used image
+    private static final LinkedHashMap<String, ImageIcon> images = new LinkedHashMap<>(64, 0.75f, true);
+    private static long usedBytes;
+
+    private static long hits;
+    private static long misses;
+
+    /**
+     * Returns a card's image answer scaled to the given size, rendering it on a miss
+     *
+     * @param card An image card
+     * @param width The display width
+     * @param height The display height
+     * @return The scaled image, or null if the card's image can't be loaded
+     */
+    public static ImageIcon get(Card card, int width, int height) {
+        String key = keyFor(card, width, height);
+        if (key == null) {
+            return null;
+        }
+
+        synchronized (ScaledImageCache.class) {
+            ImageIcon cached = images.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        // Render outside the lock; the prefetcher may be scaling another card meanwhile
+        ImageIcon source = card.getImageAnswer(width);
+        if (source == null) {
+            return null;
+        }
+        ImageIcon scaled = new ImageIcon(ImageUtility.scaleImage(source.getImage(), width, height));
+        put(key, scaled);
+        return scaled;
+    }
+
+    public static synchronized boolean contains(Card card, int width, int height) {
+        String key = keyFor(card, width, height);
+        return key != null && images.containsKey(key);
+    }
+
+    private static synchronized void put(String key, ImageIcon icon) {
+        long size = sizeOf(icon);
+        if (size > BUDGET_BYTES / 2) {
+            return; // Too big to be worth keeping; caching it would flush everything else
+        }
+
+        ImageIcon previous = images.put(key, icon);
+        if (previous != null) {
+            usedBytes -= sizeOf(previous);
+        }
+        usedBytes += size;
+
+        Iterator<ImageIcon> eldest = images.values().iterator();
+        while (usedBytes > BUDGET_BYTES && eldest.hasNext()) {
+            usedBytes -= sizeOf(eldest.next());
+            eldest.remove();
+        }
+    }
+
+    private static String keyFor(Card card, int width, int height) {
+        String imageKey = card.getImageKey();
+        return imageKey != null ? imageKey + "@" + width + "x" + height : null;
+    }
+
+    private static long sizeOf(ImageIcon icon) {
+        return (long) icon.getIconWidth() * icon.getIconHeight() * 4;
+    }
+
+    public static synchronized String getStats() {
+        return "Scaled image cache: " + images.size() + " images, " + (usedBytes / (1024 * 1024)) + " MB used, "
+                + hits + " hits, " + misses + " misses";
+    }
+}
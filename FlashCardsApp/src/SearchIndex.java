@@ -0,0 +1,349 @@
+// SearchIndex.java
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Inverted index over the words of each card's question, text answer and
+ * topic. Every word maps to the cards containing it, so a query only touches
+ * the postings of its own words. Query words match as prefixes, so results
+ * can be shown while a word is still being typed.
+ *
+ * Cards are numbered densely in the order they were indexed, and postings
+ * hold those numbers rather than card IDs: a set of matching cards is then
+ * a BitSet, and combining the words of a query is a few bitwise operations.
+ *
+ * The index is updated card by card as the module changes, and the deck
+ * store writes it next to each snapshot (name.search), tagged with the
+ * snapshot's journal sequence, so it is not rebuilt at startup.
+ *
+ * File layout: [int magic "FCSI"][short version][long journalSequence]
+ *              [int card count][long cardId]*count
+ *              [int word count] then per word: [string word][int n][varint gap]*n
+ */
+public class SearchIndex {
+    public static final String EXTENSION = ".search";
+
+    private static final int MAGIC = 0x46435349; // "FCSI"
+    private static final short VERSION = 1;
+
+    // Sorted, so the words starting with a prefix are one contiguous range
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+
+    // Card ID by card number
+    private long[] cardIds = new long[1024];
+    private int cardCount;
+
+    // Card number by card ID; only needed for edits, so built on the first one
+    private HashMap<Long, Integer> numbersById;
+
+    /**
+     * Card numbers for one word, kept sorted. Cards are numbered as they are
+     * indexed, so adding a new card appends at the end.
+     */
+    private static class Postings {
+        int[] cards;
+        int size;
+
+        Postings(int capacity) {
+            cards = new int[Math.max(capacity, 2)];
+        }
+
+        void insert(int card) {
+            if (size > 0 && cards[size - 1] >= card) {
+                int at = Arrays.binarySearch(cards, 0, size, card);
+                if (at >= 0) {
+                    return;
+                }
+                insertAt(-at - 1, card);
+            } else {
+                insertAt(size, card);
+            }
+        }
+
+        private void insertAt(int at, int card) {
+            if (size == cards.length) {
+                cards = Arrays.copyOf(cards, size * 2);
+            }
+            System.arraycopy(cards, at, cards, at + 1, size - at);
+            cards[at] = card;
+            size++;
+        }
+
+        void delete(int card) {
+            int at = Arrays.binarySearch(cards, 0, size, card);
+            if (at >= 0) {
+                System.arraycopy(cards, at + 1, cards, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Builds the index for a list of cards
+     *
+     * @param cards The module's cards
+     * @return The finished index
+     */
+    public static SearchIndex build(Iterable<Card> cards) {
+        SearchIndex index = new SearchIndex();
+
+        // Hash lookups while collecting; the words are sorted into the tree once at the end
+        HashMap<String, Postings> collected = new HashMap<>();
+        for (Card card : cards) {
+            int number = index.newNumber(card.getId());
+            for (String word : wordsOf(card)) {
+                collected.computeIfAbsent(word, w -> new Postings(2)).insert(number);
+            }
+        }
+        index.postings.putAll(collected);
+        return index;
+    }
+
+    public void add(Card card) {
+        Integer number = numbersById().get(card.getId());
+        addWords(number != null ? number : newNumber(card.getId()), card);
+    }
+
+    /**
+     * Removes a card, using the content it had when it was added
+     *
+     * @param card The card, or a copy of its content before an edit
+     */
+    public void remove(Card card) {
+        // The card keeps its number, so an edit (remove, then add) doesn't renumber it
+        Integer number = numbersById().get(card.getId());
+        if (number == null) {
+            return;
+        }
+        for (String word : wordsOf(card)) {
+            Postings wordPostings = postings.get(word);
+            if (wordPostings != null) {
+                wordPostings.delete(number);
+                if (wordPostings.size == 0) {
+                    postings.remove(word);
+                }
+            }
+        }
+    }
+
+    private void addWords(int number, Card card) {
+        for (String word : wordsOf(card)) {
+            postings.computeIfAbsent(word, w -> new Postings(2)).insert(number);
+        }
+    }
+
+    private int newNumber(long cardId) {
+        if (cardCount == cardIds.length) {
+            cardIds = Arrays.copyOf(cardIds, cardCount * 2);
+        }
+        if (numbersById != null) {
+            numbersById.put(cardId, cardCount);
+        }
+        cardIds[cardCount] = cardId;
+        return cardCount++;
+    }
+
+    private HashMap<Long, Integer> numbersById() {
+        if (numbersById == null) {
+            numbersById = new HashMap<>(cardCount * 2);
+            for (int i = 0; i < cardCount; i++) {
+                numbersById.put(cardIds[i], i);
+            }
+        }
+        return numbersById;
+    }
+
+    /**
+     * Finds the cards containing every word of the query, each as a word prefix
+     *
+     * @param query The search text, e.g. "markov ch"
+     * @param filter Further condition on the card ID, applied before the limit; null for none
+     * @param limit The most IDs to return
+     * @return The matching card IDs, in the order the cards were indexed
+     */
+    public long[] search(String query, LongPredicate filter, int limit) {
+        Set<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return new long[0];
+        }
+
+        BitSet matches = null;
+        for (String word : words) {
+            BitSet wordMatches = prefixMatches(word);
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+            if (matches.isEmpty()) {
+                return new long[0];
+            }
+        }
+
+        long[] ids = new long[Math.min(matches.cardinality(), limit)];
+        int size = 0;
+        for (int card = matches.nextSetBit(0); card >= 0 && size < ids.length; card = matches.nextSetBit(card + 1)) {
+            if (filter == null || filter.test(cardIds[card])) {
+                ids[size++] = cardIds[card];
+            }
+        }
+        return size < ids.length ? Arrays.copyOf(ids, size) : ids;
+    }
+
+    // The cards with a word starting with prefix
+    private BitSet prefixMatches(String prefix) {
+        BitSet cards = new BitSet(cardCount);
+        SortedMap<String, Postings> range = postings.subMap(prefix, prefix + Character.MAX_VALUE);
+        for (Postings wordPostings : range.values()) {
+            for (int i = 0; i < wordPostings.size; i++) {
+                cards.set(wordPostings.cards[i]);
+            }
+        }
+        return cards;
+    }
+
+    private static Set<String> wordsOf(Card card) {
+        Set<String> words = tokenize(card.getQuestion());
+        words.addAll(tokenize(card.getTextAnswer()));
+        words.addAll(tokenize(card.getTopic()));
+        return words;
+    }
+
+    /**
+     * Splits text into lower-case words of letters and digits (any script)
+     *
+     * @param text The text, may be null
+     * @return The distinct words, in order of appearance
+     */
+    public static Set<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text == null) {
+            return words;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Writes the index, tagged with the journal sequence of the snapshot it belongs to.
+     * Removed cards are left out and the rest renumbered without gaps.
+     *
+     * @param out The stream to write to (not closed)
+     * @param journalSequence The snapshot's journal sequence
+     */
+    public void write(DataOutputStream out, long journalSequence) throws IOException {
+        // Only cards that still have words are kept; removed ones have none
+        BitSet used = new BitSet(cardCount);
+        for (Postings wordPostings : postings.values()) {
+            for (int i = 0; i < wordPostings.size; i++) {
+                used.set(wordPostings.cards[i]);
+            }
+        }
+        int[] newNumbers = new int[cardCount];
+        int kept = 0;
+        for (int card = used.nextSetBit(0); card >= 0; card = used.nextSetBit(card + 1)) {
+            newNumbers[card] = kept++;
+        }
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeLong(journalSequence);
+        out.writeInt(kept);
+        for (int card = used.nextSetBit(0); card >= 0; card = used.nextSetBit(card + 1)) {
+            out.writeLong(cardIds[card]);
+        }
+
+        out.writeInt(postings.size());
+        for (Map.Entry<String, Postings> entry : postings.entrySet()) {
+            DeckFormat.writeString(out, entry.getKey());
+            Postings wordPostings = entry.getValue();
+            out.writeInt(wordPostings.size);
+            // Renumbering keeps the order, so the gaps between numbers stay positive and mostly fit in a byte
+            int previous = -1;
+            for (int i = 0; i < wordPostings.size; i++) {
+                int card = newNumbers[wordPostings.cards[i]];
+                writeVarInt(out, card - previous);
+                previous = card;
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads an index written by write()
+     *
+     * @param in The stream to read from (not closed)
+     * @param journalSequence The journal sequence of the snapshot just loaded
+     * @return The index, or null if it belongs to a different snapshot
+     */
+    public static SearchIndex read(DataInputStream in, long journalSequence) throws IOException {
+        if (in.readInt() != MAGIC || in.readShort() != VERSION) {
+            return null;
+        }
+        if (in.readLong() != journalSequence) {
+            return null; // Stale: written for another snapshot of the deck
+        }
+
+        SearchIndex index = new SearchIndex();
+        index.cardCount = in.readInt();
+        index.cardIds = new long[Math.max(index.cardCount, 1024)];
+        for (int i = 0; i < index.cardCount; i++) {
+            index.cardIds[i] = in.readLong();
+        }
+
+        int wordCount = in.readInt();
+        for (int i = 0; i < wordCount; i++) {
+            String word = DeckFormat.readString(in);
+            int size = in.readInt();
+            Postings wordPostings = new Postings(size);
+            int card = -1;
+            for (int j = 0; j < size; j++) {
+                card += readVarInt(in);
+                wordPostings.cards[j] = card;
+            }
+            wordPostings.size = size;
+            index.postings.put(word, wordPostings);
+        }
+        return index;
+    }
+
+    // Seven bits per byte, low bits first; the high bit says another byte follows
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
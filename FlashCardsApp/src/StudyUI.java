@@ -20,7 +20,7 @@ public class StudyUI extends JFrame {
     private JLabel answerLabel;
     private JPanel answerPanel;
     private JTextArea textAnswerArea;
-    private JLabel imageAnswerLabel;
+    private TiledImageView imageAnswerView;
 
     private List<Card> studyCards;
     private int currentCardIndex = 0;
@@ -37,12 +37,26 @@ public class StudyUI extends JFrame {
 
     private JScrollPane imageScrollPane;
 
+    // Delay after the last resize event before the image is laid out again
+    private static final int RESIZE_SETTLE_MS = 150;
+    private Timer resizeTimer;
+
+    // Idle time after the last zoom click before the sharp render starts
+    private static final int ZOOM_SETTLE_MS = 250;
+
+    // Run with -Dflashcards.cacheStats=true to print image cache statistics when a session ends
+    private static final boolean PRINT_CACHE_STATS = Boolean.getBoolean("flashcards.cacheStats");
+    private Timer zoomTimer;
+
+    // Prepares the images of the next few cards in the background
+    private final ImagePrefetcher prefetcher = new ImagePrefetcher(StudyUI::initialDisplaySize);
+
     public StudyUI(Module module, MainMenuUI mainMenuUI) {
         this.module = module;
         this.mainMenuUI = mainMenuUI;
 
         // Make a copy of the cards for this study session
-        studyCards = new ArrayList<>(module.getCards());
+        studyCards = module.copyCards();
 
         setTitle("Study: " + module.getName());
         setSize(900, 700);
@@ -57,15 +71,23 @@ public class StudyUI extends JFrame {
             }
         });
 
+        // Re-layout once the window has stopped resizing, not on every event of a drag
+        resizeTimer = new Timer(RESIZE_SETTLE_MS, e -> refreshImageAfterResize());
+        resizeTimer.setRepeats(false);
+
+        // Render the final zoom level once the zoom buttons have been idle for a moment
+        zoomTimer = new Timer(ZOOM_SETTLE_MS, e -> renderSettledZoom());
+        zoomTimer.setRepeats(false);
+
         // Add component listener for resizing
         addComponentListener(new ComponentAdapter() {
             @Override
             public void componentResized(ComponentEvent e) {
-                // If currently showing an image answer, resize it to fit the new window size
+                // The image size doesn't depend on the window, so only the layout needs refreshing
                 if (isShowingAnswer &&
                         currentCardIndex < studyCards.size() &&
                         studyCards.get(currentCardIndex).getAnswerType() == Card.AnswerType.IMAGE) {
-                    showCurrentCard();
+                    resizeTimer.restart();
                 }
             }
         });
@@ -174,12 +196,12 @@ public class StudyUI extends JFrame {
         textAnswerScrollPane.setBorder(BorderFactory.createEmptyBorder());
 
         // Create the image label
-        imageAnswerLabel = new JLabel();
-        imageAnswerLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
-        imageAnswerLabel.setHorizontalAlignment(JLabel.CENTER);
+        // Renders only the visible part of the image, so deep zoom doesn't need a huge buffer
+        imageAnswerView = new TiledImageView(prefetcher);
+        imageAnswerView.setAlignmentX(Component.LEFT_ALIGNMENT);
 
         // Create a scroll pane for the image
-        imageScrollPane = new JScrollPane(imageAnswerLabel);
+        imageScrollPane = new JScrollPane(imageAnswerView);
         imageScrollPane.setAlignmentX(Component.LEFT_ALIGNMENT);
         imageScrollPane.setBorder(BorderFactory.createEmptyBorder());
         imageScrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
@@ -277,8 +299,9 @@ public class StudyUI extends JFrame {
     }
 
     private void filterCardsByTopic(String topic) {
+        prefetcher.cancelAll();
         if (topic == null || topic.equals("All Topics")) {
-            studyCards = new ArrayList<>(module.getCards());
+            studyCards = module.copyCards();
         } else {
             studyCards = module.getCardsByTopic(topic);
         }
@@ -359,9 +382,8 @@ public class StudyUI extends JFrame {
             zoomFactor = 1.0;
 
             // Enhanced image handling for better initial display
-            if (currentCard.getImageAnswer() != null) {
-                // Get original image
-                ImageIcon originalIcon = currentCard.getImageAnswer();
+            Dimension originalSize = currentCard.getImageAnswerSize();
+            if (originalSize != null) {
 
                 // Get viewport size
                 int viewportWidth = imageScrollPane.getViewport().getWidth();
@@ -372,15 +394,8 @@ public class StudyUI extends JFrame {
                 if (viewportHeight < 100) viewportHeight = 300;
 
                 // Get original dimensions
-                int originalWidth = originalIcon.getIconWidth();
-                int originalHeight = originalIcon.getIconHeight();
-
-                double scale = 1.0; // Use original size as baseline
-
-                // If original is very small, scale it up a bit
-                if (originalWidth < 800) {
-                    scale = 1.5; // Make small images 50% larger
-                }
+                int originalWidth = originalSize.width;
+                int originalHeight = originalSize.height;
 
 //                // Calculate scale to fit the image entirely within the viewport
 //                // with a small margin (90% of viewport)
@@ -394,19 +409,14 @@ public class StudyUI extends JFrame {
 //                }
 
                 // Calculate target dimensions
-                int targetWidth = (int)(originalWidth * scale);
-                int targetHeight = (int)(originalHeight * scale);
-
-                // Create resized image with high quality
-                Image resizedImage = originalIcon.getImage().getScaledInstance(
-                        targetWidth, targetHeight, Image.SCALE_SMOOTH);
-                imageAnswerLabel.setIcon(new ImageIcon(resizedImage));
+                Dimension targetSize = initialDisplaySize(originalSize);
+                int targetWidth = targetSize.width;
+                int targetHeight = targetSize.height;
 
-                // Set the preferred size of the label to match the image size
-                imageAnswerLabel.setPreferredSize(new Dimension(targetWidth, targetHeight));
+                // Usually already scaled by the prefetcher; otherwise scaled from the nearest pyramid level
+                imageAnswerView.setImage(currentCard, targetWidth, targetHeight);
             } else {
-                imageAnswerLabel.setIcon(null);
-                imageAnswerLabel.setPreferredSize(null);
+                imageAnswerView.clear();
             }
 
             imageScrollPane.setVisible(true);
@@ -423,6 +433,27 @@ public class StudyUI extends JFrame {
         // Update navigation buttons
         prevButton.setEnabled(currentCardIndex > 0);
         nextButton.setEnabled(currentCardIndex < studyCards.size() - 1);
+
+        // Get the neighbouring cards' images ready while this one is being read
+        prefetcher.prefetch(studyCards, currentCardIndex);
+    }
+
+    // Size an image answer is first shown at, before any zooming
+    private static Dimension initialDisplaySize(Dimension originalSize) {
+        double scale = 1.0; // Use original size as baseline
+
+        // If original is very small, scale it up a bit
+        if (originalSize.width < 800) {
+            scale = 1.5; // Make small images 50% larger
+        }
+
+        return new Dimension((int)(originalSize.width * scale), (int)(originalSize.height * scale));
+    }
+
+    // Size an image answer is shown at with the current zoom; zoom 1.0 is the initial display size
+    private Dimension zoomedSize(Dimension originalSize) {
+        Dimension initialSize = initialDisplaySize(originalSize);
+        return new Dimension((int)(initialSize.width * zoomFactor), (int)(initialSize.height * zoomFactor));
     }
 
 
@@ -435,7 +466,7 @@ public class StudyUI extends JFrame {
         zoomInButton.setEnabled(false);
         zoomInButton.addActionListener(e -> {
             zoomFactor *= 1.25;
-            updateImageWithZoom();
+            previewZoom();
         });
 
         zoomOutButton = new JButton("-");
@@ -443,7 +474,7 @@ public class StudyUI extends JFrame {
         zoomOutButton.setEnabled(false);
         zoomOutButton.addActionListener(e -> {
             zoomFactor *= 0.8;
-            updateImageWithZoom();
+            previewZoom();
         });
 
         resetZoomButton = new JButton("Reset Zoom");
@@ -451,7 +482,7 @@ public class StudyUI extends JFrame {
         resetZoomButton.setEnabled(false);
         resetZoomButton.addActionListener(e -> {
             zoomFactor = 1.0;
-            updateImageWithZoom();
+            previewZoom();
         });
 
         zoomPanel.add(zoomInButton);
@@ -463,28 +494,73 @@ public class StudyUI extends JFrame {
 
     private void updateImageWithZoom() {
         Card currentCard = studyCards.get(currentCardIndex);
-        if (currentCard.getAnswerType() == Card.AnswerType.IMAGE && currentCard.getImageAnswer() != null) {
-            ImageIcon originalIcon = currentCard.getImageAnswer();
-            int originalWidth = originalIcon.getIconWidth();
-            int originalHeight = originalIcon.getIconHeight();
-
+        Dimension originalSize = currentCard.getImageAnswerSize();
+        if (originalSize != null) {
             // Apply zoom factor
-            int targetWidth = (int)(originalWidth * zoomFactor);
-            int targetHeight = (int)(originalHeight * zoomFactor);
-
-            // Create high-quality scaled image
-            Image resizedImage = originalIcon.getImage().getScaledInstance(
-                    targetWidth, targetHeight, Image.SCALE_SMOOTH);
-            imageAnswerLabel.setIcon(new ImageIcon(resizedImage));
+            Dimension targetSize = zoomedSize(originalSize);
+            int targetWidth = targetSize.width;
+            int targetHeight = targetSize.height;
 
-            // Important: update the preferred size so scrollbars adjust
-            imageAnswerLabel.setPreferredSize(new Dimension(targetWidth, targetHeight));
+            // Only the visible tiles are rendered; the view updates its preferred size so scrollbars adjust
+            imageAnswerView.setImage(currentCard, targetWidth, targetHeight);
 
             // Refresh the scroll pane to update scrollbars
             imageScrollPane.revalidate();
         }
     }
 
+    // Shows the new zoom at once from what is already decoded; the sharp render follows when clicks stop
+    private void previewZoom() {
+        imageAnswerView.setFastPreview(true);
+        updateImageWithZoom();
+        zoomTimer.restart();
+    }
+
+    // Renders the settled zoom level with bicubic quality in the background, then swaps it in
+    private void renderSettledZoom() {
+        if (currentCardIndex >= studyCards.size()) {
+            return;
+        }
+        Card currentCard = studyCards.get(currentCardIndex);
+        Dimension originalSize = currentCard.getImageAnswerSize();
+        if (originalSize == null) {
+            return;
+        }
+
+        Dimension targetSize = zoomedSize(originalSize);
+        if (!TiledImageView.drawsWholeImage(targetSize.width, targetSize.height)) {
+            // Tiles only render what is visible, so that is cheap enough to do right away
+            imageAnswerView.setFastPreview(false);
+            return;
+        }
+        prefetcher.render(currentCard, targetSize, () -> {
+            // Ignore a render the user has already zoomed or moved away from
+            if (imageAnswerView.isShowing(currentCard, targetSize.width, targetSize.height)) {
+                imageAnswerView.setFastPreview(false);
+            }
+        });
+    }
+
+    // Lays the image out again after a resize, keeping the scroll position; the image itself is unchanged
+    private void refreshImageAfterResize() {
+        if (currentCardIndex >= studyCards.size()) {
+            return;
+        }
+        JViewport viewport = imageScrollPane.getViewport();
+        Point scrollPosition = viewport.getViewPosition();
+
+        imageScrollPane.revalidate();
+
+        // Restore the scroll position once the new layout is in place
+        SwingUtilities.invokeLater(() -> {
+            Dimension viewSize = viewport.getViewSize();
+            Dimension extent = viewport.getExtentSize();
+            int x = Math.max(0, Math.min(scrollPosition.x, viewSize.width - extent.width));
+            int y = Math.max(0, Math.min(scrollPosition.y, viewSize.height - extent.height));
+            viewport.setViewPosition(new Point(x, y));
+        });
+    }
+
     private void toggleAnswer() {
         isShowingAnswer = !isShowingAnswer;
 
@@ -527,7 +603,8 @@ public class StudyUI extends JFrame {
     }
 
     private void shuffleCards() {
-        java.util.Collections.shuffle(studyCards);
+        prefetcher.cancelAll();
+        Module.shuffle(studyCards);
         currentCardIndex = 0;
         showCurrentCard();
         JOptionPane.showMessageDialog(this,
@@ -536,6 +613,13 @@ public class StudyUI extends JFrame {
     }
 
     private void returnToMainMenu() {
+        resizeTimer.stop();
+        zoomTimer.stop();
+        prefetcher.shutdown();
+        if (PRINT_CACHE_STATS) {
+            System.out.println(ImageCache.getStats());
+            System.out.println(ScaledImageCache.getStats());
+        }
         mainMenuUI.setVisible(true);
         dispose();
     }
@@ -0,0 +1,133 @@
+// ThumbnailCache.java
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+import javax.swing.SwingUtilities;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Small previews of image answers for the card list, stored on disk under
+ * images/thumbnails as <content hash>_<width>x<height>.png. Because the name
+ * is the hash of the image's bytes, a changed image simply gets a new
+ * thumbnail. Thumbnails are made from the smallest pyramid level, never the
+ * full original, on a background thread.
+ */
+public class ThumbnailCache {
+    public static final int WIDTH = 160;
+    public static final int HEIGHT = 90;
+
+    private static final String DIRECTORY = "thumbnails";
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "thumbnails");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public interface Callback {
+        void thumbnailReady(ImageIcon thumbnail);
+    }
+
+    /**
+     * Loads (or makes) a card's thumbnail in the background and hands it to
+     * the callback on the Event Dispatch Thread
+     *
+     * @param card An image card
+     * @param callback Receives the thumbnail; not called if there is none
+     */
+    public static void request(Card card, Callback callback) {
+        File imageFile = card.getImageAnswerFile();
+        if (imageFile == null) {
+            return;
+        }
+        executor.submit(() -> {
+            ImageIcon thumbnail = load(imageFile);
+            if (thumbnail != null) {
+                SwingUtilities.invokeLater(() -> callback.thumbnailReady(thumbnail));
+            }
+        });
+    }
+
+    /**
+     * Makes the thumbnail for a newly imported image in the background
+     *
+     * @param imageFile The stored image
+     */
+    public static void generate(File imageFile) {
+        executor.submit(() -> ensureThumbnail(imageFile));
+    }
+
+    /**
+     * Makes the thumbnail for an image on the calling thread if it doesn't
+     * exist yet, e.g. from a batch import's worker pool
+     *
+     * @param imageFile The stored image
+     */
+    public static void ensureThumbnail(File imageFile) {
+        try {
+            File thumbnailFile = thumbnailFile(ImageStore.contentHash(imageFile));
+            if (!thumbnailFile.exists()) {
+                create(imageFile, thumbnailFile);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static void delete(String contentHash) {
+        File thumbnailFile = thumbnailFile(contentHash);
+        ImageCache.invalidate(thumbnailFile.getPath());
+        if (thumbnailFile.exists() && !thumbnailFile.delete()) {
+            System.out.println("Could not delete thumbnail: " + thumbnailFile.getName());
+        }
+    }
+
+    private static ImageIcon load(File imageFile) {
+        try {
+            File thumbnailFile = thumbnailFile(ImageStore.contentHash(imageFile));
+            // Decoded thumbnails share the image cache budget
+            return ImageCache.get(thumbnailFile.getPath(), () -> {
+                try {
+                    if (!thumbnailFile.exists()) {
+                        create(imageFile, thumbnailFile);
+                    }
+                    BufferedImage image = ImageIO.read(thumbnailFile);
+                    return image != null ? new ImageIcon(image) : null;
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    return null;
+                }
+            });
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    private static void create(File imageFile, File thumbnailFile) throws IOException {
+        BufferedImage source = ImageIO.read(ImagePyramid.bestSource(imageFile, WIDTH));
+        if (source == null) {
+            return; // Not a format ImageIO can decode
+        }
+
+        ImageIcon thumbnail = ImageUtility.createThumbnail(new ImageIcon(source), WIDTH, HEIGHT);
+
+        // Write to a temp file first so a half-written thumbnail is never picked up
+        File directory = thumbnailFile.getParentFile();
+        Files.createDirectories(directory.toPath());
+        // Unique name, since the import pool and the background thread may make the same thumbnail
+        File temp = Files.createTempFile(directory.toPath(), thumbnailFile.getName(), ".tmp").toFile();
+        ImageIO.write((BufferedImage) thumbnail.getImage(), "png", temp);
+        Files.move(temp.toPath(), thumbnailFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static File thumbnailFile(String contentHash) {
+        File directory = new File(FileUtils.getImagesDir(), DIRECTORY);
+        return new File(directory, contentHash + "_" + WIDTH + "x" + HEIGHT + ".png");
+    }
+}
@@ -0,0 +1,250 @@
+// TiledImageView.java
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Shows a card's image answer at a zoom factor inside a scroll pane. Up to a
+ * moderate size the whole scaled image comes from the ScaledImageCache; if it
+ * isn't there yet, a stretched preview is painted while the prefetcher renders
+ * it in the background, so painting never scales a large image. Beyond
+ * that only the 256 px tiles intersecting the visible area are rendered, from
+ * the nearest pyramid level, and kept in a bounded per-zoom tile cache. Memory
+ * therefore stays the same however far the image is zoomed.
+ */
+public class TiledImageView extends JComponent implements Scrollable {
+    private static final int TILE_SIZE = 256;
+
+    // Scaled images up to this many pixels are drawn whole (and can be prefetched)
+    private static final long WHOLE_IMAGE_MAX_PIXELS = 4L * 1024 * 1024;
+
+    // 256 tiles of 256x256 ARGB is 64 MB
+    private static final int MAX_CACHED_TILES = 256;
+
+    private Card card;
+    private int displayWidth;
+    private int displayHeight;
+
+    // While set (e.g. during a window drag or rapid zooming) paint a rough preview instead of rendering
+    private boolean fastPreview;
+
+    // Last full-quality whole image drawn for the current card, stretched for previews
+    private Image lastFullImage;
+
+    // Access-ordered, so iteration starts at the least recently used tile
+    private final LinkedHashMap<String, Image> tiles = new LinkedHashMap<>(64, 0.75f, true);
+
+    // Renders whole images that aren't in the cache yet, off the Event Dispatch Thread
+    private final ImagePrefetcher renderer;
+
+    // The last card and size handed to the renderer, so every repaint doesn't ask again
+    private Card requestedCard;
+    private int requestedWidth;
+    private int requestedHeight;
+
+    public TiledImageView(ImagePrefetcher renderer) {
+        this.renderer = renderer;
+        setOpaque(false);
+    }
+
+    /**
+     * Shows an image card at the given size, or nothing if card is null
+     *
+     * @param card The image card
+     * @param width The zoomed image width
+     * @param height The zoomed image height
+     */
+    public void setImage(Card card, int width, int height) {
+        if (card != this.card) {
+            tiles.clear();
+            lastFullImage = null;
+            fastPreview = false;
+        }
+        this.card = card;
+        this.displayWidth = card != null ? Math.max(width, 1) : 0;
+        this.displayHeight = card != null ? Math.max(height, 1) : 0;
+
+        setPreferredSize(card != null ? new Dimension(displayWidth, displayHeight) : null);
+        revalidate();
+        repaint();
+    }
+
+    public void clear() {
+        setImage(null, 0, 0);
+    }
+
+    public boolean isShowing(Card card, int width, int height) {
+        return this.card == card && displayWidth == width && displayHeight == height;
+    }
+
+    public void setFastPreview(boolean fastPreview) {
+        if (this.fastPreview != fastPreview) {
+            this.fastPreview = fastPreview;
+            repaint();
+        }
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+        if (card == null) {
+            return;
+        }
+
+        // Center the image when it is smaller than the viewport, like a JLabel does
+        int originX = Math.max(0, (getWidth() - displayWidth) / 2);
+        int originY = Math.max(0, (getHeight() - displayHeight) / 2);
+
+        if (fastPreview && !ScaledImageCache.contains(card, displayWidth, displayHeight)) {
+            paintPreview((Graphics2D) g, originX, originY);
+            return;
+        }
+
+        if (drawsWholeImage(displayWidth, displayHeight)) {
+            if (!ScaledImageCache.contains(card, displayWidth, displayHeight)) {
+                paintPreview((Graphics2D) g, originX, originY);
+                requestRender();
+                return;
+            }
+            ImageIcon scaled = ScaledImageCache.get(card, displayWidth, displayHeight);
+            if (scaled != null) {
+                g.drawImage(scaled.getImage(), originX, originY, null);
+                lastFullImage = scaled.getImage();
+            }
+            return;
+        }
+
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        clip = clip.intersection(new Rectangle(originX, originY, displayWidth, displayHeight));
+        if (clip.isEmpty()) {
+            return;
+        }
+
+        // Only the tiles under the visible area are drawn (and rendered if needed)
+        int firstColumn = (clip.x - originX) / TILE_SIZE;
+        int lastColumn = (clip.x + clip.width - 1 - originX) / TILE_SIZE;
+        int firstRow = (clip.y - originY) / TILE_SIZE;
+        int lastRow = (clip.y + clip.height - 1 - originY) / TILE_SIZE;
+
+        ImageIcon source = null;
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                String key = displayWidth + "x" + displayHeight + ":" + column + "," + row;
+                Image tile = tiles.get(key);
+                if (tile == null) {
+                    if (source == null) {
+                        source = card.getImageAnswer(displayWidth);
+                        if (source == null) {
+                            return;
+                        }
+                    }
+                    tile = renderTile(source.getImage(), column, row);
+                    cacheTile(key, tile);
+                }
+                g.drawImage(tile, originX + column * TILE_SIZE, originY + row * TILE_SIZE, null);
+            }
+        }
+    }
+
+    /**
+     * True if an image of this size is drawn whole from the ScaledImageCache
+     * rather than in tiles
+     */
+    public static boolean drawsWholeImage(int width, int height) {
+        return (long) width * height <= WHOLE_IMAGE_MAX_PIXELS;
+    }
+
+    // Has the current card scaled to the current size in the background, then repaints
+    private void requestRender() {
+        if (requestedCard == card && requestedWidth == displayWidth && requestedHeight == displayHeight) {
+            return; // Already asked; if it failed, asking again on every repaint won't help
+        }
+        requestedCard = card;
+        requestedWidth = displayWidth;
+        requestedHeight = displayHeight;
+
+        Card renderCard = card;
+        int width = displayWidth;
+        int height = displayHeight;
+        renderer.render(renderCard, new Dimension(width, height), () -> {
+            if (isShowing(renderCard, width, height)) {
+                repaint();
+            }
+        });
+    }
+
+    // Stretches something already decoded: the last sharp image if there is one, else the smallest level
+    private void paintPreview(Graphics2D g2d, int originX, int originY) {
+        if (lastFullImage != null) {
+            g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g2d.drawImage(lastFullImage, originX, originY, displayWidth, displayHeight, null);
+            return;
+        }
+
+        // Nearest-neighbour stretch of the smallest level; cheap enough for every event
+        ImageIcon preview = card.getImageAnswer(Math.max(1, displayWidth / 8));
+        if (preview != null) {
+            g2d.drawImage(preview.getImage(), originX, originY, displayWidth, displayHeight, null);
+        }
+    }
+
+    // Renders one tile of the zoomed image from the part of the source under it
+    private Image renderTile(Image source, int column, int row) {
+        int x = column * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        int width = Math.min(TILE_SIZE, displayWidth - x);
+        int height = Math.min(TILE_SIZE, displayHeight - y);
+
+        double scaleX = (double) source.getWidth(null) / displayWidth;
+        double scaleY = (double) source.getHeight(null) / displayHeight;
+
+        BufferedImage tile = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = tile.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(source, 0, 0, width, height,
+                (int) Math.floor(x * scaleX), (int) Math.floor(y * scaleY),
+                (int) Math.ceil((x + width) * scaleX), (int) Math.ceil((y + height) * scaleY), null);
+        g2d.dispose();
+        return tile;
+    }
+
+    private void cacheTile(String key, Image tile) {
+        tiles.put(key, tile);
+        Iterator<Image> eldest = tiles.values().iterator();
+        while (tiles.size() > MAX_CACHED_TILES && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+    }
+
+    // Fill the viewport when the image is smaller than it, so the image can be centered
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > displayWidth;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > displayHeight;
+    }
+}
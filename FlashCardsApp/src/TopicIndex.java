@@ -0,0 +1,68 @@
+// TopicIndex.java
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Topic to cards multimap with the topics kept in sorted order. Each member
+ * gets a position when it is first added and keeps it when it moves to
+ * another topic, so the members of a topic are listed in the order they were
+ * added to the index: deck order, as long as the index is built in list order
+ * and cards are appended. Listing topics or the cards of one topic costs only
+ * the size of the answer, not the size of the deck.
+ *
+ * @param <T> What is indexed: cards, or the slots of a LazyCardList
+ */
+public class TopicIndex<T> {
+    private final TreeMap<String, TreeMap<Long, T>> members = new TreeMap<>();
+
+    // Position of each member (cards and record numbers are each unique)
+    private final HashMap<T, Long> positions = new HashMap<>();
+    private long nextPosition;
+
+    public void add(String topic, T member) {
+        Long position = positions.computeIfAbsent(member, m -> nextPosition++);
+        members.computeIfAbsent(topic, t -> new TreeMap<>()).put(position, member);
+    }
+
+    public void remove(String topic, T member) {
+        Long position = positions.remove(member);
+        if (position != null) {
+            removeFromTopic(topic, position);
+        }
+    }
+
+    // Moves a member to another topic, keeping its position
+    public void move(T member, String oldTopic, String newTopic) {
+        Long position = positions.get(member);
+        if (position != null && !oldTopic.equals(newTopic)) {
+            removeFromTopic(oldTopic, position);
+            members.computeIfAbsent(newTopic, t -> new TreeMap<>()).put(position, member);
+        }
+    }
+
+    private void removeFromTopic(String topic, long position) {
+        TreeMap<Long, T> topicMembers = members.get(topic);
+        if (topicMembers != null) {
+            topicMembers.remove(position);
+            // A topic without cards is no longer listed
+            if (topicMembers.isEmpty()) {
+                members.remove(topic);
+            }
+        }
+    }
+
+    // All topics in use, sorted alphabetically
+    public List<String> topics() {
+        return new ArrayList<>(members.keySet());
+    }
+
+    // Members of one topic, in index order; empty for an unknown topic
+    public Collection<T> members(String topic) {
+        TreeMap<Long, T> topicMembers = members.get(topic);
+        return topicMembers != null ? Collections.unmodifiableCollection(topicMembers.values()) : Collections.emptyList();
+    }
+}